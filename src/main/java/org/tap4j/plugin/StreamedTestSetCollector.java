@@ -0,0 +1,312 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.tap4j.model.BailOut;
+import org.tap4j.model.Plan;
+import org.tap4j.model.TestResult;
+import org.tap4j.model.TestSet;
+import org.tap4j.plugin.model.StreamedTestSetMap;
+import org.tap4j.plugin.model.TapResultSummary;
+import org.tap4j.plugin.util.TestSetFlattener;
+import org.tap4j.plugin.util.Util;
+import org.tap4j.util.StatusValues;
+
+/**
+ * Counts the tests of a TAP stream notified by a {@link TapEventParser}, keeping
+ * only the failed tests (up to a limit) and the bail outs. The counters are the
+ * same that {@link TapResult#tally()} computes for the whole test set, including
+ * when the test set is flattened. The tests of a flattened test set are numbered
+ * and ordered breadth-first, as by the {@link TestSetFlattener}.
+ *
+ * @since 2.4.5
+ */
+public class StreamedTestSetCollector implements TapEventParser.Listener {
+
+    private static final long serialVersionUID = -5064290616826417950L;
+
+    /**
+     * Default maximum number of failed tests kept.
+     */
+    public static final int DEFAULT_MAX_KEPT_TESTS = 1000;
+
+    private static final String DURATION_KEY = "duration_ms";
+
+    private final Boolean todoIsFailure;
+    private final boolean flatten;
+    private final int maxKeptTests;
+
+    /**
+     * Open test sets, the top level one last.
+     */
+    private final Deque<Level> levels = new ArrayDeque<>();
+    /**
+     * The last subtest closed, until its parent test result is found.
+     */
+    private Level closedSubtest;
+    /**
+     * The last test result counted, to add the duration of its diagnostic.
+     */
+    private TestResult lastCounted;
+    /**
+     * The last test result kept, to keep its diagnostic too.
+     */
+    private TestResult lastKept;
+    private int keptTests;
+    /**
+     * Number of tests without subtests found at each depth, when flattened.
+     */
+    private final List<Integer> leaves = new ArrayList<>();
+    /**
+     * Depth, and position among the tests without subtests of the same depth, of each
+     * test kept when flattened. Breadth-first order sorts the tests by depth, and then
+     * in the order they appear in the stream.
+     */
+    private final Map<TestResult, Long> positions = new IdentityHashMap<>();
+
+    private int passed;
+    private int failed;
+    private int skipped;
+    private int todo;
+    private int bailOuts;
+    private int total;
+    private float duration;
+
+    /**
+     * @param todoIsFailure whether TODO tests are failures
+     * @param flatten whether to count the tests as if the test set was flattened
+     * @param maxKeptTests maximum number of failed tests kept
+     */
+    public StreamedTestSetCollector(Boolean todoIsFailure, boolean flatten, int maxKeptTests) {
+        this.todoIsFailure = todoIsFailure;
+        this.flatten = flatten;
+        this.maxKeptTests = maxKeptTests;
+        this.levels.push(new Level());
+    }
+
+    @Override
+    public void plan(int depth, Plan plan) {
+        levels.peek().plan = plan;
+    }
+
+    @Override
+    public void subtestStart(int depth) {
+        levels.push(new Level());
+        closedSubtest = null;
+    }
+
+    @Override
+    public void subtestEnd(int depth) {
+        closedSubtest = levels.pop();
+    }
+
+    @Override
+    public void testResult(int depth, TestResult testResult) {
+        final Level level = levels.peek();
+        final Level subtest = closedSubtest;
+        closedSubtest = null;
+        lastCounted = null;
+        lastKept = null;
+        level.testResults++;
+
+        final boolean hasSubtests = subtest != null && subtest.testResults > 0;
+        if (flatten) {
+            if (hasSubtests) {
+                // only the tests without subtests are kept, with the descriptions of their parents
+                final String description = String.valueOf(testResult.getDescription());
+                for (TestResult kept : subtest.kept) {
+                    kept.setDescription(description + kept.getDescription());
+                    level.kept.add(kept);
+                }
+                final int missing = subtest.plannedTestResults() - subtest.testResults;
+                if (subtest.plan != null && missing != 0) {
+                    final TestResult missingTestResult = new TestResult();
+                    missingTestResult.setStatus(StatusValues.NOT_OK);
+                    missingTestResult.setDescription(String.format("%s %s %d %s", testResult.getDescription(),
+                            "failed:", missing, "subtest(s) missing"));
+                    count(missingTestResult);
+                    // it follows the subtests, as when the tree is flattened
+                    keepLeaf(level, depth + 1, missingTestResult);
+                }
+            } else {
+                count(testResult);
+                keepLeaf(level, depth, testResult);
+            }
+        } else {
+            if (depth == 0) {
+                count(testResult);
+            }
+            if (hasSubtests && !subtest.kept.isEmpty()) {
+                // the parent is needed to show the failed subtests
+                final TestSet testSet = new TestSet();
+                testSet.setPlan(subtest.plan);
+                for (TestResult kept : subtest.kept) {
+                    testSet.addTestResult(kept);
+                }
+                testResult.setSubtest(testSet);
+                keep(level, testResult, true);
+            } else {
+                keep(level, testResult, false);
+            }
+        }
+    }
+
+    @Override
+    public void diagnostic(int depth, TestResult testResult, Map<String, Object> diagnostic) {
+        if (testResult == lastCounted) {
+            final Object duration = diagnostic.get(DURATION_KEY);
+            if (duration != null) {
+                try {
+                    this.duration += Float.parseFloat(duration.toString());
+                } catch (NumberFormatException nfe) {
+                    // not a duration
+                }
+            }
+        }
+        if (testResult == lastKept) {
+            testResult.setDiagnostic(diagnostic);
+        }
+    }
+
+    @Override
+    public void bailOut(int depth, BailOut bailOut) {
+        // a flattened test set has no bail outs
+        if (depth == 0 && !flatten) {
+            bailOuts++;
+            levels.getLast().bailOuts.add(bailOut);
+        }
+    }
+
+    /**
+     * @return the counters of the tests notified so far
+     */
+    public TapResultSummary getCounts() {
+        final Plan plan = levels.getLast().plan;
+        if (!flatten && plan != null && plan.isSkip()) {
+            return new TapResultSummary(0, 0, total, 0, bailOuts, total, 0.0f, 1, 0);
+        }
+        return new TapResultSummary(passed, failed, skipped, todo, bailOuts, total, duration, 1, 0);
+    }
+
+    /**
+     * @param fileName TAP file name
+     * @return the test set with the tests kept and the counters of all the tests
+     */
+    public StreamedTestSetMap toTestSetMap(String fileName) {
+        final Level top = levels.getLast();
+        final TestSet testSet = new TestSet();
+        if (!flatten) {
+            testSet.setPlan(top.plan);
+            for (BailOut bailOut : top.bailOuts) {
+                testSet.addBailOut(bailOut);
+            }
+        }
+        for (TestResult kept : flatten ? numberBreadthFirst(top.kept) : top.kept) {
+            testSet.addTestResult(kept);
+        }
+        return new StreamedTestSetMap(fileName, testSet, getCounts());
+    }
+
+    private void count(TestResult testResult) {
+        total++;
+        if (Util.isSkipped(testResult)) {
+            skipped++;
+        } else if (Util.isFailure(testResult, todoIsFailure)) {
+            failed++;
+        } else if (Util.isTodo(testResult)) {
+            todo++;
+        } else {
+            passed++;
+        }
+        lastCounted = testResult;
+    }
+
+    /**
+     * Keeps a test of a flattened test set, if it failed, with its breadth-first position.
+     */
+    private void keepLeaf(Level level, int depth, TestResult testResult) {
+        while (leaves.size() <= depth) {
+            leaves.add(0);
+        }
+        final int index = leaves.get(depth);
+        leaves.set(depth, index + 1);
+        keep(level, testResult, false);
+        if (lastKept == testResult) {
+            positions.put(testResult, ((long) depth << 32) | index);
+        }
+    }
+
+    /**
+     * Numbers the tests of a flattened test set breadth-first, and sorts them in that order.
+     */
+    private List<TestResult> numberBreadthFirst(List<TestResult> kept) {
+        final long[] offsets = new long[leaves.size()];
+        for (int depth = 1; depth < offsets.length; depth++) {
+            offsets[depth] = offsets[depth - 1] + leaves.get(depth - 1);
+        }
+        final List<TestResult> numbered = new ArrayList<>(kept);
+        for (TestResult testResult : numbered) {
+            final long position = positions.get(testResult);
+            testResult.setTestNumber((int) (offsets[(int) (position >>> 32)] + (position & 0xffffffffL) + 1));
+        }
+        numbered.sort(Comparator.comparingInt(TestResult::getTestNumber));
+        return numbered;
+    }
+
+    private void keep(Level level, TestResult testResult, boolean always) {
+        if (always) {
+            level.kept.add(testResult);
+            lastKept = testResult;
+        } else if (keptTests < maxKeptTests && Util.isFailure(testResult, todoIsFailure)) {
+            keptTests++;
+            level.kept.add(testResult);
+            lastKept = testResult;
+        }
+    }
+
+    /**
+     * An open test set.
+     */
+    private static final class Level implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private Plan plan;
+        private int testResults;
+        private final List<TestResult> kept = new ArrayList<>();
+        private final List<BailOut> bailOuts = new ArrayList<>(0);
+
+        private int plannedTestResults() {
+            return plan == null ? 0 : plan.getLastTestNumber() - plan.getInitialTestNumber() + 1;
+        }
+    }
+
+}
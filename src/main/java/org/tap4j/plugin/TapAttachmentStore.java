@@ -0,0 +1,303 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.commons.codec.binary.Base64;
+import org.tap4j.model.TestResult;
+import org.tap4j.model.TestSet;
+import org.tap4j.plugin.model.TapAttachment;
+import org.tap4j.plugin.model.TestSetMap;
+import org.tap4j.plugin.util.Constants;
+
+import hudson.XmlFile;
+import hudson.model.Run;
+import hudson.util.XStream2;
+
+/**
+ * Attachments of the TAP results of a build, extracted from the YAMLish diagnostics
+ * when the results are published, so that they can be downloaded without parsing
+ * the TAP files again.
+ *
+ * <p>Each attachment is decoded into a file of the {@link Constants#TAP_ATTACHMENTS_DIR_NAME}
+ * directory of the build. An index maps the TAP file name and the key used in the
+ * download links, i.e. the attachment {@code File-Name} or the key of its parent
+ * diagnostic, to the stored file. The index is written for every build that publishes
+ * results, even without attachments, so that a build without it is known to have been
+ * recorded before the attachments were extracted.</p>
+ *
+ * <p>Each build has its own lock, and its index is read once and reused while the file
+ * does not change.</p>
+ *
+ * @since 2.4.5
+ */
+public final class TapAttachmentStore {
+
+    private static final String INDEX_FILE_NAME = "index.xml";
+
+    private static final XStream2 XSTREAM = new XStream2();
+
+    static {
+        XSTREAM.alias("tap-attachments", Index.class);
+        XSTREAM.alias("attachment", Stored.class);
+    }
+
+    /**
+     * Lock of the attachments of each build.
+     */
+    private static final Map<Run<?, ?>, Object> LOCKS = new WeakHashMap<>();
+
+    /**
+     * Indexes read, reused while the file does not change.
+     */
+    private static final Map<Run<?, ?>, Snapshot> SNAPSHOTS = new WeakHashMap<>();
+
+    private TapAttachmentStore() {
+        super();
+    }
+
+    /**
+     * Extracts the attachments of the given results, adding them to the ones
+     * already stored for the build.
+     *
+     * @param build build
+     * @param result TAP results, with file names relative to the build TAP directory
+     * @return number of attachments extracted
+     * @throws IOException if an attachment or the index could not be written
+     */
+    public static int extract(Run<?, ?> build, TapResult result) throws IOException {
+        synchronized (getLock(build)) {
+            return extractLocked(build, result);
+        }
+    }
+
+    private static int extractLocked(Run<?, ?> build, TapResult result) throws IOException {
+        final File dir = getDir(build);
+        final XmlFile indexFile = getIndexFile(build);
+        final boolean exists = indexFile.exists();
+        final Index index = exists ? (Index) indexFile.read() : new Index();
+        final int before = index.count;
+        for (TestSetMap tsm : result.getTestSets()) {
+            final Deque<TestSet> pending = new ArrayDeque<>();
+            pending.add(tsm.getTestSet());
+            while (!pending.isEmpty()) {
+                for (TestResult tr : pending.poll().getTestResults()) {
+                    final Map<String, Object> diagnostic = tr.getDiagnostic();
+                    if (diagnostic != null && !diagnostic.isEmpty()) {
+                        extract(dir, index, tsm.getFileName(), null, diagnostic);
+                    }
+                    if (tr.getSubtest() != null) {
+                        pending.add(tr.getSubtest());
+                    }
+                }
+            }
+        }
+        if (!exists || index.count > before) {
+            Files.createDirectories(dir.toPath());
+            indexFile.write(index);
+        }
+        return index.count - before;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void extract(File dir, Index index, String tapFile, String parentKey,
+            Map<String, Object> diagnostic) throws IOException {
+        Object content = diagnostic.get("File-Content");
+        if (content == null) {
+            content = diagnostic.get("File-content");
+        }
+        if (content instanceof String) {
+            final TapAttachment attachment = new TapAttachment(null, diagnostic);
+            if (index.isNew(tapFile, parentKey) || index.isNew(tapFile, attachment.getFileName())) {
+                final Stored stored = new Stored(attachment.getFileName(), attachment.getFileType(),
+                        "attachment-" + (++index.count));
+                final File file = new File(dir, stored.storedName);
+                Files.createDirectories(dir.toPath());
+                Files.write(file.toPath(), Base64.decodeBase64((String) content));
+                stored.size = file.length();
+                index.put(tapFile, parentKey, stored);
+                index.put(tapFile, attachment.getFileName(), stored);
+            }
+        }
+        for (Map.Entry<String, Object> entry : diagnostic.entrySet()) {
+            if (entry.getValue() instanceof Map<?, ?>) {
+                extract(dir, index, tapFile, entry.getKey(), (Map<String, Object>) entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @param build build
+     * @return whether the attachments of the build were extracted when its results were
+     *         published. If not, the build was recorded before 2.4.5
+     */
+    public static boolean isIndexed(Run<?, ?> build) {
+        return getIndexFile(build).exists();
+    }
+
+    /**
+     * @param build build
+     * @param tapFile name of the TAP file, as in the download links
+     * @param key attachment key, as in the download links
+     * @return the stored attachment, or {@code null} if the build has no such attachment stored
+     * @throws IOException if the index could not be read
+     */
+    public static Stored find(Run<?, ?> build, String tapFile, String key) throws IOException {
+        final Index index = getIndex(build);
+        final Stored stored = index != null ? index.get(tapFile, key) : null;
+        if (stored == null) {
+            return null;
+        }
+        // a copy, the index is shared by the downloads
+        final Stored found = new Stored(stored.fileName, stored.fileType, stored.storedName);
+        found.size = stored.size;
+        found.file = new File(getDir(build), stored.storedName);
+        return found;
+    }
+
+    private static Index getIndex(Run<?, ?> build) throws IOException {
+        synchronized (getLock(build)) {
+            final XmlFile indexFile = getIndexFile(build);
+            final File file = indexFile.getFile();
+            if (!file.exists()) {
+                return null;
+            }
+            Snapshot snapshot;
+            synchronized (SNAPSHOTS) {
+                snapshot = SNAPSHOTS.get(build);
+            }
+            if (snapshot != null && snapshot.length == file.length() && snapshot.lastModified == file.lastModified()) {
+                return snapshot.index;
+            }
+            final Index index = (Index) indexFile.read();
+            synchronized (SNAPSHOTS) {
+                SNAPSHOTS.put(build, new Snapshot(file.length(), file.lastModified(), index));
+            }
+            return index;
+        }
+    }
+
+    private static Object getLock(Run<?, ?> build) {
+        synchronized (LOCKS) {
+            return LOCKS.computeIfAbsent(build, k -> new Object());
+        }
+    }
+
+    private static XmlFile getIndexFile(Run<?, ?> build) {
+        return new XmlFile(XSTREAM, new File(getDir(build), INDEX_FILE_NAME));
+    }
+
+    private static File getDir(Run<?, ?> build) {
+        return new File(build.getRootDir(), Constants.TAP_ATTACHMENTS_DIR_NAME);
+    }
+
+    private static final class Snapshot {
+        private final long length;
+        private final long lastModified;
+        private final Index index;
+
+        private Snapshot(long length, long lastModified, Index index) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Attachment keys per TAP file.
+     */
+    private static final class Index {
+        private final Map<String, Map<String, Stored>> files = new HashMap<>();
+        /**
+         * Number of attachments stored.
+         */
+        private int count;
+
+        boolean isNew(String tapFile, String key) {
+            return key != null && get(tapFile, key) == null;
+        }
+
+        void put(String tapFile, String key, Stored stored) {
+            if (key != null) {
+                // same as searching the diagnostics, the first attachment found wins
+                files.computeIfAbsent(tapFile, k -> new HashMap<>()).putIfAbsent(key, stored);
+            }
+        }
+
+        Stored get(String tapFile, String key) {
+            final Map<String, Stored> keys = files.get(tapFile);
+            return keys != null ? keys.get(key) : null;
+        }
+    }
+
+    /**
+     * An attachment stored in the build directory.
+     */
+    public static final class Stored {
+        private final String fileName;
+        private final String fileType;
+        private final String storedName;
+        private long size;
+        private transient File file;
+
+        private Stored(String fileName, String fileType, String storedName) {
+            this.fileName = fileName;
+            this.fileType = fileType;
+            this.storedName = storedName;
+        }
+
+        /**
+         * @return the attachment file name, from its diagnostics
+         */
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getFileType() {
+            return fileType;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @param out stream to copy the attachment content to
+         * @throws IOException if the attachment could not be read
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            Files.copy(file.toPath(), out);
+        }
+    }
+
+}
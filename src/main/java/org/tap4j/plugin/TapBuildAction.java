@@ -25,31 +25,55 @@ package org.tap4j.plugin;
 
 import hudson.model.Action;
 import hudson.model.Run;
+import jenkins.model.RunAction2;
 import org.kohsuke.stapler.StaplerProxy;
+import org.tap4j.plugin.model.TapResultSummary;
 
 import javax.annotation.Nullable;
 import java.io.Serializable;
 
 /**
- * TAP Build action with TAP results.
+ * TAP Build action with TAP results. The results are those of the
+ * {@link TapTestResultAction} of the same build, so that a build keeps
+ * a single copy of them.
  * 
  * @since 1.0
  */
-public class TapBuildAction implements Action, Serializable, StaplerProxy {
+public class TapBuildAction implements Action, Serializable, StaplerProxy, RunAction2 {
 
     private static final long serialVersionUID = 520981690971849654L;
     public static final String URL_NAME = "tapResults";
     public static final String ICON_NAME = "/plugin/tap/icons/tap-24.png";
     public static final String DISPLAY_NAME = "TAP Extended Test Results";
 
-    private final transient Run<?, ?> build;
+    private transient Run<?, ?> build;
 
+    /**
+     * Results of builds recorded before 2.4.5, which kept a copy of the results
+     * in each action. Dropped when the build has a {@link TapTestResultAction}.
+     */
+    @Deprecated
     private TapResult result;
 
-    public TapBuildAction(Run<?, ?> build, TapResult result) {
+    /**
+     * @param build the build, with a {@link TapTestResultAction} holding the results
+     * @since 2.4.5
+     */
+    public TapBuildAction(Run<?, ?> build) {
         super();
         this.build = build;
-        this.result = result;
+    }
+
+    /**
+     * @deprecated the results are taken from the {@link TapTestResultAction} of the build,
+     *             use {@link #TapBuildAction(Run)}
+     */
+    @Deprecated
+    public TapBuildAction(Run<?, ?> build, TapResult result) {
+        this(build);
+        if (getTestResultAction() == null) {
+            this.result = result;
+        }
     }
 
     /*
@@ -58,7 +82,7 @@ public class TapBuildAction implements Action, Serializable, StaplerProxy {
      * @see org.kohsuke.stapler.StaplerProxy#getTarget()
      */
     public Object getTarget() {
-        return this.result;
+        return getResult();
     }
 
     /*
@@ -97,9 +121,30 @@ public class TapBuildAction implements Action, Serializable, StaplerProxy {
     }
 
     public TapResult getResult() {
+        TapTestResultAction testResultAction = getTestResultAction();
+        if (testResultAction != null) {
+            return testResultAction.getTapResult();
+        }
         return this.result;
     }
 
+    /**
+     * @return the counters of the TAP results, without loading the test sets
+     * @since 2.4.5
+     */
+    public TapResultSummary getSummary() {
+        TapTestResultAction testResultAction = getTestResultAction();
+        if (testResultAction != null) {
+            return testResultAction.getSummary();
+        }
+        return this.result != null ? this.result.getSummary() : TapResultSummary.EMPTY;
+    }
+
+    @Nullable
+    private TapTestResultAction getTestResultAction() {
+        return this.build != null ? this.build.getAction(TapTestResultAction.class) : null;
+    }
+
     public TapResult getPreviousResult() {
         TapResult previousResult = null;
 
@@ -125,8 +170,35 @@ public class TapBuildAction implements Action, Serializable, StaplerProxy {
         return previousAction;
     }
 
+    /**
+     * @deprecated the results are merged by the {@link TapTestResultAction} of the build
+     */
+    @Deprecated
     public void mergeResult(TapResult other) {
-        result = result.copyWithExtraTestSets(other.getTestSets());
-        result.tally();
+        TapTestResultAction testResultAction = getTestResultAction();
+        if (testResultAction != null) {
+            testResultAction.mergeResult(other);
+        } else {
+            result = result.copyWithExtraTestSets(other.getTestSets());
+            result.tally();
+        }
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> r) {
+        this.build = r;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> r) {
+        this.build = r;
+        if (this.result != null) {
+            if (getTestResultAction() != null) {
+                // same results as the TapTestResultAction, no need to keep them twice
+                this.result = null;
+            } else {
+                this.result.setOwner(r);
+            }
+        }
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,392 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.tap4j.model.BailOut;
+import org.tap4j.model.Plan;
+import org.tap4j.model.SkipPlan;
+import org.tap4j.model.TapElement;
+import org.tap4j.model.TapElementFactory;
+import org.tap4j.model.TestResult;
+import org.tap4j.parser.ParserException;
+import org.tap4j.plugin.util.CompressionUtil;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+
+/**
+ * Reads a TAP stream line by line, and notifies a {@link Listener} of each plan,
+ * test result, subtest, YAML diagnostic and bail out found. Unlike the tap4j
+ * parser, it does not build the tree of the test set, so the memory used does not
+ * depend on the size of the stream, only on the size of the largest YAML block
+ * (limited to {@link #MAX_YAML_LENGTH}).
+ *
+ * <p>Subtests are the indented lines before the test result that they belong to,
+ * as in the tap4j parser. Test result lines are read by the tap4j
+ * {@link TapElementFactory}, so their description, directive and comment are split
+ * as in the tap4j parser. Comments and other lines are ignored.</p>
+ *
+ * <p>The parser can be serialized between lines, with its listener, to continue
+ * parsing a stream later.</p>
+ *
+ * @since 2.4.5
+ */
+public class TapEventParser implements Serializable {
+
+    private static final long serialVersionUID = 3047436315823095370L;
+
+    private static final Logger LOGGER = Logger.getLogger(TapEventParser.class.getName());
+
+    /**
+     * YAML blocks longer than this, in characters, are discarded, see
+     * {@link #getDiscardedDiagnostics()}.
+     */
+    public static final int MAX_YAML_LENGTH = 1024 * 1024;
+
+    private static final Pattern PLAN_PATTERN = Pattern.compile("^(\\d+)\\.\\.(\\d+)\\s*(?:#\\s*(.*))?$");
+    private static final Pattern TEST_RESULT_PATTERN = Pattern.compile("^(ok|not ok)\\b.*$");
+    private static final Pattern BAIL_OUT_PATTERN = Pattern.compile("^Bail out!\\s*(.*)$");
+
+    /**
+     * Receives the events of the stream, in the order they appear in the stream.
+     */
+    public interface Listener extends Serializable {
+
+        /**
+         * @param depth 0 for the top level test set, 1 for its subtests, and so on
+         * @param plan the plan of the test set at that depth
+         */
+        void plan(int depth, Plan plan);
+
+        /**
+         * A test result. If it has subtests, they were notified before it, between
+         * {@link #subtestStart(int)} and {@link #subtestEnd(int)}.
+         *
+         * @param depth depth of the test set of the result
+         * @param testResult the test result, without diagnostics and subtests
+         */
+        void testResult(int depth, TestResult testResult);
+
+        /**
+         * @param depth depth of the subtest that starts
+         */
+        void subtestStart(int depth);
+
+        /**
+         * @param depth depth of the subtest that ends. The next test result at
+         *              {@code depth - 1} is its parent
+         */
+        void subtestEnd(int depth);
+
+        /**
+         * A YAML block, after the test result it belongs to.
+         *
+         * @param depth depth of the test set of the result
+         * @param testResult the last test result notified at that depth
+         * @param diagnostic the YAML block
+         */
+        void diagnostic(int depth, TestResult testResult, Map<String, Object> diagnostic);
+
+        /**
+         * @param depth depth of the test set
+         * @param bailOut the bail out
+         */
+        void bailOut(int depth, BailOut bailOut);
+    }
+
+    private final Listener listener;
+    private final boolean enableSubtests;
+    private final boolean planRequired;
+    private final boolean removeYamlIfCorrupted;
+
+    /**
+     * Open test sets, the top level one first.
+     */
+    private final Deque<Level> levels = new ArrayDeque<>();
+    private TestResult lastTestResult;
+    private int lastTestResultIndentation;
+    private int lastTestResultDepth;
+    private StringBuilder yaml;
+    private int yamlIndentation;
+    private boolean yamlTooLong;
+    private boolean topLevelPlan;
+    private int lineNumber;
+    private int discardedDiagnostics;
+    private int firstDiscardedDiagnosticLine;
+
+    public TapEventParser(Listener listener, boolean enableSubtests, boolean planRequired,
+            boolean removeYamlIfCorrupted) {
+        this.listener = listener;
+        this.enableSubtests = enableSubtests;
+        this.planRequired = planRequired;
+        this.removeYamlIfCorrupted = removeYamlIfCorrupted;
+    }
+
+    /**
+     * Parses a whole TAP file, compressed or not.
+     *
+     * @param file TAP file
+     * @throws ParserException if the file cannot be read or is not valid TAP
+     */
+    public void parseFile(File file) throws ParserException {
+        try (Reader reader = CompressionUtil.openReader(file)) {
+            parse(reader);
+        } catch (IOException ioe) {
+            throw new ParserException("Error reading TAP file [" + file + "]: " + ioe.getMessage(), ioe);
+        }
+    }
+
+    /**
+     * Parses a whole TAP stream. The reader is not closed.
+     *
+     * @param reader TAP stream
+     * @throws IOException if the stream cannot be read
+     * @throws ParserException if the stream is not valid TAP
+     */
+    public void parse(Reader reader) throws IOException, ParserException {
+        final BufferedReader br = reader instanceof BufferedReader
+                ? (BufferedReader) reader
+                : new BufferedReader(reader);
+        String line;
+        while ((line = br.readLine()) != null) {
+            parseLine(line);
+        }
+        finish();
+    }
+
+    /**
+     * Parses the next line of the stream. Used when the stream is not available at
+     * once, e.g. when it is still being written. {@link #finish()} must be called
+     * after the last line.
+     *
+     * @param line the line, without the line terminator
+     * @throws ParserException if the line is not valid TAP
+     */
+    public void parseLine(String line) throws ParserException {
+        lineNumber++;
+        if (yaml != null) {
+            parseYamlLine(line);
+            return;
+        }
+        final int indentation = indentation(line);
+        if (indentation == line.length()) {
+            return;
+        }
+        final String content = line.substring(indentation);
+        if (lastTestResult != null && indentation > lastTestResultIndentation && "---".equals(content.trim())) {
+            yaml = new StringBuilder();
+            yamlIndentation = indentation;
+            yamlTooLong = false;
+            return;
+        }
+        lastTestResult = null;
+
+        final int depth = enterLevel(indentation);
+        final Level level = levels.peek();
+
+        Matcher m = TEST_RESULT_PATTERN.matcher(content);
+        final TapElement element = m.matches() ? TapElementFactory.createTapElement(content) : null;
+        if (element instanceof TestResult) {
+            final TestResult testResult = (TestResult) element;
+            if (testResult.getTestNumber() == null || testResult.getTestNumber() <= 0) {
+                // same as the tap4j parser, a test without number follows the previous one
+                testResult.setTestNumber(level.testResults + 1);
+            }
+            level.testResults++;
+            lastTestResult = testResult;
+            lastTestResultIndentation = indentation;
+            lastTestResultDepth = depth;
+            listener.testResult(depth, testResult);
+            return;
+        }
+        m = PLAN_PATTERN.matcher(content);
+        if (m.matches()) {
+            final String comment = m.group(3);
+            final Plan plan;
+            if (comment != null && comment.toLowerCase(Locale.ENGLISH).startsWith("skip")) {
+                plan = new Plan(Integer.valueOf(m.group(1)), Integer.valueOf(m.group(2)),
+                        new SkipPlan(comment.substring(4).trim()));
+            } else {
+                plan = new Plan(Integer.valueOf(m.group(1)), Integer.valueOf(m.group(2)));
+            }
+            if (depth == 0) {
+                topLevelPlan = true;
+            }
+            listener.plan(depth, plan);
+            return;
+        }
+        m = BAIL_OUT_PATTERN.matcher(content);
+        if (m.matches()) {
+            listener.bailOut(depth, new BailOut(m.group(1)));
+        }
+        // version, comments and anything else are ignored
+    }
+
+    /**
+     * Ends the stream, closing the open subtests.
+     *
+     * @throws ParserException if the stream ends in the middle of a YAML block, or
+     *                         the plan is required and was not found
+     */
+    public void finish() throws ParserException {
+        if (yaml != null) {
+            endYaml();
+        }
+        while (levels.size() > 1) {
+            levels.pop();
+            listener.subtestEnd(levels.size());
+        }
+        if (planRequired && !topLevelPlan) {
+            throw new ParserException("Missing TAP Plan.");
+        }
+    }
+
+    /**
+     * @return number of YAML blocks discarded so far, for being longer than {@link #MAX_YAML_LENGTH}
+     */
+    public int getDiscardedDiagnostics() {
+        return discardedDiagnostics;
+    }
+
+    /**
+     * @return line where the first discarded YAML block ended, {@code 0} if none was discarded
+     */
+    public int getFirstDiscardedDiagnosticLine() {
+        return firstDiscardedDiagnosticLine;
+    }
+
+    /**
+     * @return number of lines parsed so far
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Opens or closes subtests, according to the indentation of the line.
+     *
+     * @return the depth of the line
+     */
+    private int enterLevel(int indentation) {
+        if (levels.isEmpty()) {
+            levels.push(new Level(indentation));
+            return 0;
+        }
+        if (!enableSubtests) {
+            return 0;
+        }
+        if (indentation > levels.peek().indentation) {
+            levels.push(new Level(indentation));
+            listener.subtestStart(levels.size() - 1);
+        } else {
+            while (levels.size() > 1 && indentation < levels.peek().indentation) {
+                levels.pop();
+                listener.subtestEnd(levels.size());
+            }
+        }
+        return levels.size() - 1;
+    }
+
+    private void parseYamlLine(String line) throws ParserException {
+        if ("...".equals(line.trim())) {
+            endYaml();
+            return;
+        }
+        if (yamlTooLong) {
+            return;
+        }
+        final int indentation = Math.min(indentation(line), yamlIndentation);
+        yaml.append(line, indentation, line.length()).append('\n');
+        if (yaml.length() > MAX_YAML_LENGTH) {
+            yamlTooLong = true;
+            yaml.setLength(0);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void endYaml() throws ParserException {
+        final String text = yaml.toString();
+        final boolean discarded = yamlTooLong;
+        yaml = null;
+        if (discarded) {
+            if (discardedDiagnostics++ == 0) {
+                firstDiscardedDiagnosticLine = lineNumber;
+            }
+            LOGGER.log(java.util.logging.Level.FINE, "Discarded a YAML block longer than {0} characters, ending at line {1}",
+                    new Object[] {MAX_YAML_LENGTH, lineNumber});
+            return;
+        }
+        if (text.isEmpty()) {
+            return;
+        }
+        final Object loaded;
+        try {
+            loaded = new Yaml(new SafeConstructor(new LoaderOptions())).load(text);
+        } catch (YAMLException ye) {
+            if (removeYamlIfCorrupted) {
+                return;
+            }
+            throw new ParserException("Error parsing YAML ending at line " + lineNumber + ": " + ye.getMessage(), ye);
+        }
+        if (loaded instanceof Map) {
+            listener.diagnostic(lastTestResultDepth, lastTestResult, (Map<String, Object>) loaded);
+        }
+    }
+
+    private static int indentation(String line) {
+        int i = 0;
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * An open test set.
+     */
+    private static final class Level implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final int indentation;
+        private int testResults;
+
+        private Level(int indentation) {
+            this.indentation = indentation;
+        }
+    }
+
+}
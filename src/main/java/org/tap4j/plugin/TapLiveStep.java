@@ -0,0 +1,413 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.jenkinsci.Symbol;
+import org.jenkinsci.plugins.workflow.steps.BodyExecution;
+import org.jenkinsci.plugins.workflow.steps.BodyExecutionCallback;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.tap4j.parser.ParserException;
+import org.tap4j.plugin.model.StreamedTestSetMap;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.util.Timer;
+
+/**
+ * Block step that follows a TAP file while its body runs, showing the tests
+ * found so far in the {@link TapTestResultAction} of the build. The file is read
+ * from where the previous poll stopped, and parsed with a {@link TapEventParser},
+ * so only the failed tests are kept.
+ * <p>
+ * The live results are not stored. The TAP file should still be published with
+ * the TAP publisher after the block.
+ *
+ * @since 2.4.5
+ */
+public class TapLiveStep extends Step {
+
+    private static final int DEFAULT_POLL_INTERVAL = 10;
+
+    private final String file;
+    private int pollInterval = DEFAULT_POLL_INTERVAL;
+    private boolean enableSubtests = true;
+    private boolean todoIsFailure = true;
+
+    @DataBoundConstructor
+    public TapLiveStep(String file) {
+        this.file = file;
+    }
+
+    /**
+     * @return path of the TAP file, relative to the workspace
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * @return seconds between the reads of the file
+     */
+    public int getPollInterval() {
+        return pollInterval;
+    }
+
+    @DataBoundSetter
+    public void setPollInterval(int pollInterval) {
+        this.pollInterval = Math.max(1, pollInterval);
+    }
+
+    public boolean getEnableSubtests() {
+        return enableSubtests;
+    }
+
+    @DataBoundSetter
+    public void setEnableSubtests(boolean enableSubtests) {
+        this.enableSubtests = enableSubtests;
+    }
+
+    public boolean getTodoIsFailure() {
+        return todoIsFailure;
+    }
+
+    @DataBoundSetter
+    public void setTodoIsFailure(boolean todoIsFailure) {
+        this.todoIsFailure = todoIsFailure;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        return new Execution(context, this);
+    }
+
+    /**
+     * Reads the file every {@link #getPollInterval()} seconds, until the body ends.
+     */
+    static final class Execution extends StepExecution {
+
+        private static final long serialVersionUID = -1848779306113924008L;
+
+        private static final Logger LOGGER = Logger.getLogger(Execution.class.getName());
+
+        private final String file;
+        private final int pollInterval;
+        private final boolean todoIsFailure;
+        private final boolean enableSubtests;
+
+        /**
+         * Parser state, kept with the execution so that a resumed build continues
+         * from the same position.
+         */
+        private StreamedTestSetCollector collector;
+        private TapEventParser parser;
+        private long offset;
+        private int reportedFailures;
+        private boolean createdAction;
+        private boolean done;
+        private BodyExecution body;
+
+        private transient ScheduledFuture<?> task;
+
+        Execution(StepContext context, TapLiveStep step) {
+            super(context);
+            this.file = step.getFile();
+            this.pollInterval = step.getPollInterval();
+            this.todoIsFailure = step.getTodoIsFailure();
+            this.enableSubtests = step.getEnableSubtests();
+            reset();
+        }
+
+        @Override
+        public boolean start() throws Exception {
+            final Run<?, ?> run = getContext().get(Run.class);
+            TapTestResultAction action = run.getAction(TapTestResultAction.class);
+            if (action == null) {
+                action = new TapTestResultAction(run, null);
+                run.addAction(action);
+                createdAction = true;
+            }
+            schedule();
+            body = getContext().newBodyInvoker().withCallback(new Callback()).start();
+            return false;
+        }
+
+        @Override
+        public void onResume() {
+            schedule();
+        }
+
+        @Override
+        public void stop(Throwable cause) throws Exception {
+            cancel();
+            if (body != null) {
+                // the callback completes the step once the body is stopped
+                body.cancel(cause);
+            } else {
+                super.stop(cause);
+            }
+        }
+
+        private void schedule() {
+            task = Timer.get().scheduleWithFixedDelay(this::pollQuietly, 0, pollInterval, TimeUnit.SECONDS);
+        }
+
+        private synchronized void cancel() {
+            if (task != null) {
+                task.cancel(false);
+                task = null;
+            }
+        }
+
+        private void reset() {
+            collector = new StreamedTestSetCollector(todoIsFailure, false, StreamedTestSetCollector.DEFAULT_MAX_KEPT_TESTS);
+            parser = new TapEventParser(collector, enableSubtests, false, true);
+            offset = 0;
+        }
+
+        private void pollQuietly() {
+            try {
+                poll();
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                LOGGER.log(Level.FINE, "Failed to read the TAP file " + file, e);
+            }
+        }
+
+        /**
+         * Reads and parses what was appended to the file since the last poll, and
+         * updates the live results of the build. The file is read without holding
+         * the lock, so that a slow agent does not block {@link #stop(Throwable)}.
+         */
+        private void poll() throws IOException, InterruptedException {
+            final FilePath workspace = getContext().get(FilePath.class);
+            final Run<?, ?> run = getContext().get(Run.class);
+            final TapTestResultAction action = run.getAction(TapTestResultAction.class);
+            if (workspace == null || action == null) {
+                return;
+            }
+            final FilePath tapFile = workspace.child(file);
+            if (!tapFile.exists()) {
+                return;
+            }
+            boolean more = true;
+            while (more) {
+                final long start;
+                synchronized (this) {
+                    if (done) {
+                        return;
+                    }
+                    start = offset;
+                }
+                final Chunk chunk = tapFile.act(new ReadLines(start));
+                synchronized (this) {
+                    if (done) {
+                        return;
+                    }
+                    if (offset != start) {
+                        // read by another poll meanwhile, continue from there
+                        continue;
+                    }
+                    if (chunk.truncated) {
+                        // the file was replaced, start again
+                        reset();
+                        continue;
+                    }
+                    offset += chunk.data.length;
+                    for (String line : new String(chunk.data, StandardCharsets.UTF_8).split("\r?\n")) {
+                        try {
+                            parser.parseLine(line);
+                        } catch (ParserException pe) {
+                            LOGGER.log(Level.FINE, "Invalid TAP line in " + file, pe);
+                        }
+                    }
+                    more = chunk.more;
+                }
+            }
+
+            final int failures;
+            final int total;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                // the collector keeps changing its tests, the live results get a copy
+                final StreamedTestSetMap snapshot = (StreamedTestSetMap) SerializationUtils.clone(
+                        collector.toTestSetMap(file));
+                final TapResult liveResult = new TapResult("TAP Test Results", run,
+                        Collections.singletonList(snapshot), todoIsFailure, true, false);
+                action.setLiveResult(liveResult);
+                failures = liveResult.getSummary().getFailed();
+                total = liveResult.getSummary().getTotal();
+                if (failures == reportedFailures) {
+                    return;
+                }
+                reportedFailures = failures;
+            }
+            getContext().get(TaskListener.class).getLogger().println("TAP live: " + failures
+                    + " failure(s) in " + total + " test(s) so far");
+        }
+
+        /**
+         * Reads the rest of the file and removes the live results.
+         */
+        private void finish() throws IOException, InterruptedException {
+            cancel();
+            final Run<?, ?> run = getContext().get(Run.class);
+            try {
+                poll();
+            } catch (IOException | RuntimeException e) {
+                getContext().get(TaskListener.class).getLogger().println("Failed to read the TAP file "
+                        + file + ": " + e.getMessage());
+            }
+            synchronized (this) {
+                done = true;
+                final TapTestResultAction action = run.getAction(TapTestResultAction.class);
+                if (action != null) {
+                    action.setLiveResult(null);
+                    if (createdAction && action.getTotalCount() == 0 && !action.getTapResult().hasParseErrors()) {
+                        // nothing was published while the body ran
+                        run.removeAction(action);
+                    }
+                }
+            }
+        }
+
+        private final class Callback extends BodyExecutionCallback.TailCall {
+
+            private static final long serialVersionUID = 4101286306524823052L;
+
+            @Override
+            protected void finished(StepContext context) throws Exception {
+                finish();
+            }
+        }
+    }
+
+    /**
+     * Part of the file read by {@link ReadLines}.
+     */
+    static final class Chunk implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final byte[] data;
+        private final boolean truncated;
+        /**
+         * Whether the file has more data after the chunk, to be read right away.
+         */
+        private final boolean more;
+
+        Chunk(byte[] data, boolean truncated, boolean more) {
+            this.data = data;
+            this.truncated = truncated;
+            this.more = more;
+        }
+    }
+
+    /**
+     * Reads the complete lines of a file after an offset, up to {@link #MAX_LENGTH} bytes.
+     */
+    static final class ReadLines extends MasterToSlaveFileCallable<Chunk> {
+
+        private static final long serialVersionUID = 6612549227046420932L;
+
+        static final int MAX_LENGTH = 4 * 1024 * 1024;
+
+        private final long offset;
+
+        ReadLines(long offset) {
+            this.offset = offset;
+        }
+
+        @Override
+        public Chunk invoke(File f, VirtualChannel channel) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+                final long length = raf.length();
+                if (length < offset) {
+                    return new Chunk(new byte[0], true, false);
+                }
+                raf.seek(offset);
+                final byte[] buffer = new byte[(int) Math.min(MAX_LENGTH, length - offset)];
+                raf.readFully(buffer);
+                int end = buffer.length;
+                while (end > 0 && buffer[end - 1] != '\n') {
+                    end--;
+                }
+                if (end == 0 && buffer.length < MAX_LENGTH) {
+                    // the line is still being written
+                    return new Chunk(new byte[0], false, false);
+                }
+                // a line longer than the maximum is split
+                final byte[] data = end == 0 ? buffer : Arrays.copyOf(buffer, end);
+                return new Chunk(data, false, offset + data.length < length);
+            }
+        }
+    }
+
+    @Extension(optional = true)
+    @Symbol("tapLive")
+    public static class DescriptorImpl extends StepDescriptor {
+
+        @Override
+        public String getFunctionName() {
+            return "tapLive";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Follow a TAP file while the block runs";
+        }
+
+        @Override
+        public boolean takesImplicitBlockArgument() {
+            return true;
+        }
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return Set.of(Run.class, FilePath.class, TaskListener.class);
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.tap4j.plugin.model.TestSetMap;
+
+import hudson.Util;
+import hudson.model.Run;
+
+/**
+ * The TAP files saved and parsed by the publishers of a build, so that a file
+ * published again with the same content and parser options, e.g. by several
+ * publishTap calls with overlapping patterns, is neither copied nor parsed again.
+ * <p>
+ * Kept in memory only, while the build is referenced. The parsed test sets are
+ * released when memory is needed.
+ *
+ * @since 2.4.5
+ */
+final class TapParseCache {
+
+    private static final Map<Run<?, ?>, TapParseCache> CACHES = new WeakHashMap<>();
+
+    /**
+     * Digests of the files saved in the build, by absolute path.
+     */
+    private final Map<String, String> digests = new ConcurrentHashMap<>();
+
+    /**
+     * Parsed test sets, by digest and parser options.
+     */
+    private final Map<String, Reference<TestSetMap>> parsed = new ConcurrentHashMap<>();
+
+    private TapParseCache() {
+    }
+
+    /**
+     * @param build build
+     * @return the cache of the build
+     */
+    static TapParseCache of(Run<?, ?> build) {
+        synchronized (CACHES) {
+            return CACHES.computeIfAbsent(build, b -> new TapParseCache());
+        }
+    }
+
+    /**
+     * @param file a file saved in the build directory
+     * @return MD5 digest of the file, computed once per saved file
+     * @throws IOException if the file cannot be read
+     */
+    String digest(File file) throws IOException {
+        final String path = file.getAbsolutePath();
+        String digest = digests.get(path);
+        if (digest == null) {
+            digest = Util.getDigestOf(file);
+            digests.put(path, digest);
+        }
+        return digest;
+    }
+
+    /**
+     * @param file a file of the build directory that is about to be replaced
+     */
+    void invalidate(File file) {
+        digests.remove(file.getAbsolutePath());
+    }
+
+    /**
+     * @param digest digest of the TAP file
+     * @param options parser options
+     * @return the test set parsed from a file with the same content and options, or {@code null}
+     */
+    TestSetMap get(String digest, String options) {
+        final Reference<TestSetMap> ref = parsed.get(digest + '\n' + options);
+        return ref != null ? ref.get() : null;
+    }
+
+    /**
+     * @param digest digest of the TAP file
+     * @param options parser options
+     * @param testSetMap the test set parsed from the file
+     */
+    void put(String digest, String options, TestSetMap testSetMap) {
+        parsed.put(digest + '\n' + options, new SoftReference<>(testSetMap));
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin;
+
+import java.io.PrintStream;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the TAP files parsed at the same time in the controller, so that many builds
+ * finishing together do not exhaust its memory. Builds wait for a parser slot in the
+ * order they asked for it. Once admitted, a build whose TAP files would need more
+ * memory than is free waits a little for the memory to be released, and then parses
+ * them anyway.
+ *
+ * @since 2.4.5
+ */
+final class TapParseLimiter {
+
+    /**
+     * Estimated heap used by each byte of a TAP file parsed into a test set tree.
+     */
+    static final long HEAP_PER_TAP_BYTE = 10;
+
+    /**
+     * How often the free memory is checked while waiting for it.
+     */
+    static final long MEMORY_CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
+    /**
+     * Maximum time waiting for memory, after which the files are parsed anyway.
+     */
+    static final long MAX_MEMORY_WAIT = TimeUnit.MINUTES.toMillis(1);
+
+    private static Semaphore slots;
+    private static int maxSlots;
+
+    private TapParseLimiter() {
+        super();
+    }
+
+    /**
+     * A parser slot, released once the parse is done.
+     */
+    static final class Permit {
+
+        /**
+         * Permit of a parse that was not limited.
+         */
+        static final Permit NONE = new Permit(null);
+
+        private final Semaphore slot;
+
+        private Permit(Semaphore slot) {
+            this.slot = slot;
+        }
+
+        void release() {
+            if (slot != null) {
+                slot.release();
+            }
+        }
+    }
+
+    /**
+     * Waits until the files can be parsed.
+     *
+     * @param maxConcurrentParses maximum number of builds parsing TAP files at the same time, {@code 0}
+     *                            for no limit
+     * @param heapAdmission whether to wait for memory before parsing the files
+     * @param tapBytes size of the TAP files that are parsed into a test set tree
+     * @param logger build logger, where the time waited is reported
+     * @return the permit, to be released once the files are parsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    static Permit acquire(int maxConcurrentParses, boolean heapAdmission, long tapBytes, PrintStream logger)
+            throws InterruptedException {
+        final long start = System.currentTimeMillis();
+        final Semaphore slot = getSlots(maxConcurrentParses);
+        int waitingBuilds = 0;
+        if (slot != null && !slot.tryAcquire()) {
+            waitingBuilds = slot.getQueueLength() + 1;
+            logger.println("Waiting for a TAP parser slot (" + waitingBuilds + " build(s) waiting, at most "
+                    + maxConcurrentParses + " parsing at the same time).");
+            slot.acquire();
+        }
+        final Permit permit = new Permit(slot);
+        int memoryChecks = 0;
+        try {
+            final long required = tapBytes * HEAP_PER_TAP_BYTE;
+            while (heapAdmission && required > getFreeHeap()
+                    && System.currentTimeMillis() - start < MAX_MEMORY_WAIT) {
+                if (memoryChecks == 0) {
+                    logger.println("Waiting for " + (required >> 20) + " MB of free memory to parse the TAP files.");
+                }
+                memoryChecks++;
+                Thread.sleep(MEMORY_CHECK_INTERVAL);
+            }
+        } catch (InterruptedException e) {
+            permit.release();
+            throw e;
+        }
+        if (waitingBuilds > 0 || memoryChecks > 0) {
+            logger.println("TAP parse admitted after " + (System.currentTimeMillis() - start) + " ms ("
+                    + waitingBuilds + " build(s) waiting for a slot, " + memoryChecks + " memory check(s)).");
+        }
+        return permit;
+    }
+
+    /**
+     * @return the slots for the given limit, replaced when the limit changes. Parses holding
+     * a slot of the previous limit release it to the previous slots.
+     */
+    private static synchronized Semaphore getSlots(int maxConcurrentParses) {
+        if (maxConcurrentParses != maxSlots) {
+            maxSlots = maxConcurrentParses;
+            slots = maxConcurrentParses > 0 ? new Semaphore(maxConcurrentParses, true) : null;
+        }
+        return slots;
+    }
+
+    /**
+     * @return bytes of heap that can still be allocated
+     */
+    private static long getFreeHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+    }
+}
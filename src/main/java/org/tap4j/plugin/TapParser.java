@@ -26,24 +26,33 @@ package org.tap4j.plugin;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Reader;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
-import edu.umd.cs.findbugs.annotations.NonNull;
-import org.apache.commons.io.FileUtils;
-import org.tap4j.model.Plan;
 import org.tap4j.model.TestResult;
 import org.tap4j.model.TestSet;
 import org.tap4j.parser.ParserException;
 import org.tap4j.parser.Tap13Parser;
 import org.tap4j.plugin.model.ParseErrorTestSetMap;
+import org.tap4j.plugin.model.StreamedTestSetMap;
 import org.tap4j.plugin.model.TestSetMap;
+import org.tap4j.plugin.util.CompressionUtil;
+import org.tap4j.plugin.util.ConsoleEcho;
+import org.tap4j.plugin.util.TestSetFlattener;
 import org.tap4j.util.DirectiveValues;
 import org.tap4j.util.StatusValues;
 
 import hudson.FilePath;
 import hudson.model.Run;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 
 /**
  * Executes remote TAP Stream retrieval and execution.
@@ -72,6 +81,26 @@ public class TapParser {
     private final Boolean flattenTheTap;
     private final Boolean removeYamlIfCorrupted;
 
+    /**
+     * Number of threads used to parse the TAP files. {@code 1} parses the files sequentially.
+     */
+    private int parseThreads = 1;
+
+    /**
+     * Files with this size or larger, in bytes, are parsed in streaming mode. {@code 0} disables it.
+     */
+    private long streamingThreshold = 0;
+
+    /**
+     * How the TAP files are copied to the console when {@link #outputTapToConsole} is enabled.
+     */
+    private ConsoleEcho consoleEcho = ConsoleEcho.ALL;
+
+    /**
+     * Test sets already parsed in the build, or {@code null} to parse every file.
+     */
+    private TapParseCache cache;
+
     private boolean hasFailedTests;
     private boolean parserErrors;
 
@@ -145,6 +174,51 @@ public class TapParser {
         return enableSubtests;
     }
 
+    public int getParseThreads() {
+        return parseThreads;
+    }
+
+    /**
+     * @param parseThreads number of threads used to parse the TAP files, values lower than {@code 2}
+     *                     parse the files sequentially
+     */
+    public void setParseThreads(int parseThreads) {
+        this.parseThreads = Math.max(1, parseThreads);
+    }
+
+    public long getStreamingThreshold() {
+        return streamingThreshold;
+    }
+
+    /**
+     * Files with the given size or larger are parsed with a {@link TapEventParser}, which
+     * does not build the whole test set tree. Only the failed tests are kept, see
+     * {@link StreamedTestSetCollector}.
+     *
+     * @param streamingThreshold size in bytes, {@code 0} to parse every file with the tap4j parser
+     */
+    public void setStreamingThreshold(long streamingThreshold) {
+        this.streamingThreshold = Math.max(0, streamingThreshold);
+    }
+
+    public ConsoleEcho getConsoleEcho() {
+        return consoleEcho;
+    }
+
+    /**
+     * @param consoleEcho limits of the TAP streams copied to the console
+     */
+    public void setConsoleEcho(ConsoleEcho consoleEcho) {
+        this.consoleEcho = consoleEcho == null ? ConsoleEcho.ALL : consoleEcho;
+    }
+
+    /**
+     * @param cache test sets already parsed in the build, reused for files with the same content
+     */
+    void setCache(TapParseCache cache) {
+        this.cache = cache;
+    }
+
     private boolean containsNotOk(TestSet testSet) {
         for (TestResult testResult : testSet.getTestResults()) {
             if (testResult.getStatus().equals(StatusValues.NOT_OK) && !(testResult.getDirective() != null
@@ -155,50 +229,237 @@ public class TapParser {
         return false;
     }
 
-    public TapResult parse(FilePath[] results, Run<?, ?> build) {
+    /**
+     * @param results TAP files
+     * @param build build of the results
+     * @return the parsed results
+     * @throws InterruptedException if interrupted while parsing the files in parallel
+     */
+    public TapResult parse(FilePath[] results, Run<?, ?> build) throws InterruptedException {
+        return new TapResult("TAP Test Results", build, parseFiles(results), this.todoIsFailure,
+            this.includeCommentDiagnostics, this.validateNumberOfTests);
+    }
+
+    /**
+     * Parses the TAP files, without creating a {@link TapResult}. Used when the
+     * files are parsed where they are located, e.g. in the agent.
+     *
+     * @param results TAP files
+     * @return the parsed test sets, in the same order of the given files
+     * @throws InterruptedException if interrupted while parsing the files in parallel,
+     * in which case none of them is returned
+     */
+    public List<TestSetMap> parseFiles(FilePath[] results) throws InterruptedException {
         this.parserErrors = Boolean.FALSE;
         this.hasFailedTests = Boolean.FALSE;
         final List<TestSetMap> testSets = new LinkedList<>();
         if (null == results) {
             log("File paths not specified. paths var is null. Returning empty test results.");
         } else {
-            for (FilePath path : results) {
-                File tapFile = new File(path.getRemote());
-                if (!tapFile.isFile()) {
-                    log("'" + tapFile.getAbsolutePath() + "' points to an invalid test report");
-                    continue; // move to next file
-                } else {
-                    log("Processing '" + tapFile.getAbsolutePath() + "'");
+            final List<TestSetMap> parsed = (parseThreads > 1 && results.length > 1)
+                ? parseInParallel(results)
+                : parseSequentially(results);
+            for (TestSetMap map : parsed) {
+                if (map instanceof ParseErrorTestSetMap) {
+                    this.parserErrors = Boolean.TRUE;
+                } else if (containsNotOk(map.getTestSet()) || map.getTestSet().containsBailOut()) {
+                    this.hasFailedTests = Boolean.TRUE;
                 }
-                try {
-                    log("Parsing TAP test result [" + tapFile + "].");
+                testSets.add(map);
+            }
+        }
+        return testSets;
+    }
 
-                    final Tap13Parser parser = new Tap13Parser("UTF-8", enableSubtests, planRequired, removeYamlIfCorrupted);
-                    final TestSet testSet = flattenTheSetAsRequired(stripSingleParentsAsRequired(parser.parseFile(tapFile)));
+    private List<TestSetMap> parseSequentially(FilePath[] results) {
+        final List<TestSetMap> testSets = new ArrayList<>(results.length);
+        for (FilePath path : results) {
+            final TestSetMap map = parseFile(path);
+            if (map != null) {
+                echoToConsole(map);
+                testSets.add(map);
+            }
+        }
+        return testSets;
+    }
 
-                    if (containsNotOk(testSet) || testSet.containsBailOut()) {
-                        this.hasFailedTests = Boolean.TRUE;
+    /**
+     * Parses the files with a bounded pool of worker threads. The futures are
+     * collected in submission order, so the resulting list keeps the order of
+     * the given files, exactly as {@link #parseSequentially(FilePath[])} does.
+     */
+    private List<TestSetMap> parseInParallel(FilePath[] results) throws InterruptedException {
+        final int threads = Math.min(parseThreads, results.length);
+        log("Parsing " + results.length + " TAP files using " + threads + " threads.");
+        final ExecutorService executor = Executors.newFixedThreadPool(threads,
+            new NamingThreadFactory(new DaemonThreadFactory(), "TapParser"));
+        try {
+            final List<Future<TestSetMap>> futures = new ArrayList<>(results.length);
+            for (final FilePath path : results) {
+                futures.add(executor.submit(() -> parseFile(path)));
+            }
+            final List<TestSetMap> testSets = new ArrayList<>(results.length);
+            for (Future<TestSetMap> future : futures) {
+                final TestSetMap map;
+                try {
+                    map = future.get();
+                } catch (ExecutionException ee) {
+                    final Throwable cause = ee.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
                     }
-
-                    final TestSetMap map = new TestSetMap(tapFile.getAbsolutePath(), testSet);
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+                if (map != null) {
+                    echoToConsole(map);
                     testSets.add(map);
+                }
+            }
+            return testSets;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-                    if (this.outputTapToConsole) {
-                        try {
-                            log(FileUtils.readFileToString(tapFile));
-                        } catch (RuntimeException | IOException re) {
-                            log(re);
-                        }
-                    }
-                } catch (ParserException pe) {
-                    testSets.add(new ParseErrorTestSetMap(tapFile.getAbsolutePath(), pe));
-                    this.parserErrors = Boolean.TRUE;
-                    log(pe);
+    /**
+     * Parses a single TAP file, or reuses the test set already parsed from a file with
+     * the same content. Safe to be called concurrently, as it does not touch the state
+     * of this parser.
+     *
+     * @param path TAP file
+     * @return the parsed test set, a {@link ParseErrorTestSetMap} if the file could
+     * not be parsed, or {@code null} if the path is not a valid file
+     */
+    private TestSetMap parseFile(FilePath path) {
+        File tapFile = new File(path.getRemote());
+        if (!tapFile.isFile()) {
+            log("'" + tapFile.getAbsolutePath() + "' points to an invalid test report");
+            return null;
+        } else {
+            log("Processing '" + tapFile.getAbsolutePath() + "'");
+        }
+        try {
+            final long length = streamingThreshold > 0 ? CompressionUtil.getUncompressedLength(tapFile) : 0;
+            // files of unknown size are streamed, they may be too large for a tree
+            final boolean streaming = streamingThreshold > 0
+                    && (length == CompressionUtil.UNKNOWN_LENGTH || length >= streamingThreshold);
+            final String digest = digest(tapFile);
+            final String options = getOptions(streaming);
+            if (digest != null) {
+                final TestSetMap cached = cache.get(digest, options);
+                if (cached != null) {
+                    log("Reusing the parsed TAP test result of [" + tapFile + "].");
+                    return cached.withFileName(tapFile.getAbsolutePath());
                 }
             }
+
+            final TestSetMap map;
+            if (streaming) {
+                map = parseFileStreaming(tapFile);
+            } else {
+                log("Parsing TAP test result [" + tapFile + "].");
+
+                final Tap13Parser parser = new Tap13Parser("UTF-8", enableSubtests, planRequired, removeYamlIfCorrupted);
+                final TestSet testSet = flattenTheSetAsRequired(stripSingleParentsAsRequired(parseTapFile(parser, tapFile)));
+
+                map = new TestSetMap(tapFile.getAbsolutePath(), testSet);
+            }
+            if (digest != null) {
+                cache.put(digest, options, map);
+            }
+            return map;
+        } catch (ParserException pe) {
+            log(pe);
+            return new ParseErrorTestSetMap(tapFile.getAbsolutePath(), pe);
+        } catch (IOException e) {
+            final ParserException pe = new ParserException("Error reading TAP file [" + tapFile + "]: "
+                    + e.getMessage(), e);
+            log(pe);
+            return new ParseErrorTestSetMap(tapFile.getAbsolutePath(), pe);
+        }
+    }
+
+    /**
+     * Parses a file with the tap4j parser, decompressing it first if needed.
+     */
+    private TestSet parseTapFile(Tap13Parser parser, File tapFile) {
+        try {
+            if (CompressionUtil.getFormat(tapFile) == CompressionUtil.Format.NONE) {
+                return parser.parseFile(tapFile);
+            }
+            try (Reader reader = CompressionUtil.openReader(tapFile)) {
+                return parser.parseTapStream(reader);
+            }
+        } catch (IOException e) {
+            throw new ParserException("Error reading TAP file [" + tapFile + "]: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the digest of the file, or {@code null} if there is no cache
+     */
+    private String digest(File tapFile) {
+        if (cache == null) {
+            return null;
+        }
+        try {
+            return cache.digest(tapFile);
+        } catch (IOException e) {
+            log(e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the options that change the test set parsed from a file
+     */
+    private String getOptions(boolean streaming) {
+        return "enableSubtests=" + enableSubtests + ",planRequired=" + planRequired
+                + ",removeYamlIfCorrupted=" + removeYamlIfCorrupted + ",stripSingleParents=" + stripSingleParents
+                + ",flattenTheTap=" + flattenTheTap + ",streaming=" + streaming
+                + (streaming ? ",todoIsFailure=" + todoIsFailure : "");
+    }
+
+    /**
+     * Parses a TAP file without building its test set tree.
+     */
+    private TestSetMap parseFileStreaming(File tapFile) {
+        log("Parsing TAP test result [" + tapFile + "] in streaming mode.");
+        final StreamedTestSetCollector collector = new StreamedTestSetCollector(todoIsFailure, flattenTheTap,
+                StreamedTestSetCollector.DEFAULT_MAX_KEPT_TESTS);
+        final TapEventParser parser = new TapEventParser(collector, enableSubtests, planRequired, removeYamlIfCorrupted);
+        parser.parseFile(tapFile);
+        if (parser.getDiscardedDiagnostics() > 0) {
+            final String message = "Discarded " + parser.getDiscardedDiagnostics() + " YAML diagnostic(s) longer than "
+                    + TapEventParser.MAX_YAML_LENGTH + " characters in [" + tapFile + "], the first ending at line "
+                    + parser.getFirstDiscardedDiagnosticLine() + ".";
+            if (logger != null) {
+                logger.println(message);
+            } else {
+                log.warning(message);
+            }
+        }
+        final StreamedTestSetMap map = collector.toTestSetMap(tapFile.getAbsolutePath());
+        if (map.isTruncated()) {
+            log("Kept " + map.getTestSet().getNumberOfTestResults() + " of " + map.getCounts().getTotal()
+                    + " tests of [" + tapFile + "].");
+        }
+        return map;
+    }
+
+    private void echoToConsole(TestSetMap map) {
+        if (this.outputTapToConsole && !(map instanceof ParseErrorTestSetMap)) {
+            try {
+                try (Reader reader = CompressionUtil.openReader(new File(map.getFileName()))) {
+                    consoleEcho.echo(reader, this::log);
+                }
+            } catch (RuntimeException | IOException re) {
+                log(re);
+            }
         }
-        return new TapResult("TAP Test Results", build, testSets, this.todoIsFailure,
-            this.includeCommentDiagnostics, this.validateNumberOfTests);
     }
 
     private TestSet stripSingleParentsAsRequired(TestSet originalSet) {
@@ -217,55 +478,10 @@ public class TapParser {
         if (!flattenTheTap) {
             return originalSet;
         } else {
-            TestSet result = new TestSet();
-            final List<TestResult> resultsToProcess = originalSet.getTestResults();
-            int testIndex = 1;
-            while (!resultsToProcess.isEmpty()) {
-                final TestResult actualTestResult = resultsToProcess.remove(0);
-                TestSet subtests = actualTestResult.getSubtest();
-                if (subtests == null || subtests.getNumberOfTestResults() == 0) {
-                    actualTestResult.setTestNumber(testIndex++);
-                    result.addTestResult(actualTestResult);
-                } else {
-                    final List<TestResult> subtestResults = subtests.getTestResults();
-                    for (TestResult subtestResult : subtestResults) {
-                        subtestResult.setDescription(actualTestResult.getDescription() + subtestResult.getDescription());
-                        resultsToProcess.add(subtestResult);
-                    }
-
-                    final Plan subtestPlan = subtests.getPlan();
-                    final boolean planIsPresent = subtestPlan != null;
-                    final int subtestCountAsPlanned = planIsPresent ?
-                        subtestPlan.getLastTestNumber() - subtestPlan.getInitialTestNumber() + 1
-                        : -1;
-
-                    final boolean subtestCountDiffersFromPlan = planIsPresent && subtestCountAsPlanned != subtestResults.size();
-
-                    if (subtestCountDiffersFromPlan) {
-
-                        final TestResult timeoutTestResult = getTestResult(subtestCountAsPlanned, subtestResults, actualTestResult);
-
-                        resultsToProcess.add(timeoutTestResult);
-                    }
-                }
-            }
-            return result;
+            return TestSetFlattener.flatten(originalSet);
         }
     }
 
-    @NonNull
-    private static TestResult getTestResult(int subtestCountAsPlanned, List<TestResult> subtestResults, TestResult actualTestResult) {
-        final int missingTestCount = subtestCountAsPlanned - subtestResults.size();
-
-        final TestResult timeoutTestResult = new TestResult();
-        timeoutTestResult.setStatus(StatusValues.NOT_OK);
-        timeoutTestResult.setDescription(
-            String.format("%s %s %d %s",
-                actualTestResult.getDescription(), "failed:", missingTestCount, "subtest(s) missing")
-        );
-        return timeoutTestResult;
-    }
-
     private boolean hasSingleParent(TestSet testSet) {
 
         if (testSet == null) {
@@ -0,0 +1,126 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.tap4j.parser.ParserException;
+import org.tap4j.plugin.model.ParseErrorTestSetMap;
+import org.tap4j.plugin.model.TestSetMap;
+import org.tap4j.plugin.util.ConsoleEcho;
+
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Parses the TAP files in the workspace, where they are located (usually an agent),
+ * and sends back only the parsed test sets. Stripping single parents and flattening
+ * the test sets are also executed there.
+ * <p>
+ * The file names of the returned test sets are relative to the workspace.
+ *
+ * @since 2.4.5
+ */
+public class TapParserCallable extends MasterToSlaveFileCallable<List<TestSetMap>> {
+
+    private static final long serialVersionUID = -3497328227396284155L;
+
+    private final String[] reports;
+    private final Boolean outputTapToConsole;
+    private final Boolean enableSubtests;
+    private final Boolean todoIsFailure;
+    private final Boolean planRequired;
+    private final Boolean verbose;
+    private final Boolean stripSingleParents;
+    private final Boolean flattenTheTap;
+    private final Boolean removeYamlIfCorrupted;
+    private final int parseThreads;
+    private final long streamingThreshold;
+    private final ConsoleEcho consoleEcho;
+    private final TaskListener listener;
+
+    /**
+     * @param reports paths of the TAP files, relative to the workspace
+     * @param publisher publisher with the parser options
+     * @param listener build listener
+     */
+    public TapParserCallable(String[] reports, TapPublisher publisher, TaskListener listener) {
+        this.reports = reports.clone();
+        this.outputTapToConsole = publisher.getOutputTapToConsole();
+        this.enableSubtests = publisher.getEnableSubtests();
+        this.todoIsFailure = publisher.getTodoIsFailure();
+        this.planRequired = publisher.getPlanRequired();
+        this.verbose = publisher.getVerbose();
+        this.stripSingleParents = publisher.getStripSingleParents();
+        this.flattenTheTap = publisher.getFlattenTapResult();
+        this.removeYamlIfCorrupted = publisher.getRemoveYamlIfCorrupted();
+        this.parseThreads = publisher.getParseThreads();
+        this.streamingThreshold = publisher.getStreamingThresholdBytes();
+        this.consoleEcho = publisher.getConsoleEcho();
+        this.listener = listener;
+    }
+
+    @Override
+    public List<TestSetMap> invoke(File workspace, VirtualChannel channel) throws IOException, InterruptedException {
+        final FilePath[] files = new FilePath[reports.length];
+        for (int i = 0; i < reports.length; i++) {
+            files[i] = new FilePath(new File(workspace, reports[i]));
+        }
+
+        // includeCommentDiagnostics and validateNumberOfTests are only used by TapResult. todoIsFailure
+        // is also needed to count the tests of the files parsed in streaming mode
+        final TapParser parser = new TapParser(outputTapToConsole, enableSubtests, todoIsFailure, Boolean.FALSE,
+                Boolean.FALSE, planRequired, verbose, stripSingleParents, flattenTheTap, removeYamlIfCorrupted,
+                listener.getLogger());
+        parser.setParseThreads(parseThreads);
+        parser.setStreamingThreshold(streamingThreshold);
+        parser.setConsoleEcho(consoleEcho);
+
+        final List<TestSetMap> testSets = new ArrayList<>(reports.length);
+        for (TestSetMap map : parser.parseFiles(files)) {
+            final String relative = relativize(workspace, map.getFileName());
+            if (map instanceof ParseErrorTestSetMap) {
+                // only the message travels back, the cause may reference classes that the controller does not accept
+                final Throwable cause = ((ParseErrorTestSetMap) map).getCause();
+                testSets.add(new ParseErrorTestSetMap(relative, new ParserException(cause.getMessage())));
+            } else {
+                testSets.add(map.withFileName(relative));
+            }
+        }
+        return testSets;
+    }
+
+    private static String relativize(File workspace, String fileName) {
+        final String base = workspace.getAbsolutePath();
+        if (fileName.startsWith(base) && fileName.length() > base.length()) {
+            return fileName.substring(base.length() + 1).replace(File.separatorChar, '/');
+        }
+        return fileName;
+    }
+}
@@ -27,18 +27,20 @@ import hudson.matrix.MatrixProject;
 import hudson.model.AbstractProject;
 import hudson.model.Job;
 import hudson.model.Run;
-import hudson.util.ChartUtil;
 import hudson.util.DataSetBuilder;
-import hudson.util.RunList;
 import org.jfree.chart.JFreeChart;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 import org.tap4j.plugin.util.GraphHelper;
 
 import java.io.IOException;
-import java.util.Calendar;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * A TAP Project action, with a graph and a list of builds.
@@ -47,27 +49,6 @@ import java.util.Map;
  */
 public class TapProjectAction extends AbstractTapProjectAction {
 
-    protected static class Result {
-        public int numPassed;
-        public int numFailed;
-        public int numSkipped;
-        public int numToDo;
-        
-        public Result() {
-            numPassed = 0;
-            numFailed = 0;
-            numSkipped = 0;
-            numToDo = 0;
-        }
-        
-        public void add(Result r) {
-          numPassed += r.numPassed;
-          numFailed += r.numFailed;
-          numSkipped += r.numSkipped;
-          numToDo += r.numToDo;
-        }
-    }
-
     /**
      * Used to figure out if we need to regenerate the graphs or not. Only used
      * in newGraphNotNeeded() method. Key is the request URI and value is the
@@ -134,7 +115,7 @@ public class TapProjectAction extends AbstractTapProjectAction {
             return;
         }
 
-        final DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel> dataSetBuilder = new DataSetBuilder<>();
+        final DataSetBuilder<String, TapTrendIndex.Entry> dataSetBuilder = new DataSetBuilder<>();
 
         populateDataSetBuilder(dataSetBuilder);
         new hudson.util.Graph(-1, getGraphWidth(), getGraphHeight()) {
@@ -149,9 +130,8 @@ public class TapProjectAction extends AbstractTapProjectAction {
             return;
         }
 
-        final DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel> dataSetBuilder = new DataSetBuilder<>();
+        final DataSetBuilder<String, TapTrendIndex.Entry> dataSetBuilder = new DataSetBuilder<>();
 
-        // TODO: optimize by using cache
         populateDataSetBuilder(dataSetBuilder);
         new hudson.util.Graph(-1, getGraphWidth(), getGraphHeight()) {
             protected JFreeChart createGraph() {
@@ -166,40 +146,41 @@ public class TapProjectAction extends AbstractTapProjectAction {
      * @return value for property 'graphAvailable'
      */
     public boolean isGraphActive() {
-        Run<?, ?> build = this.job.getLastBuild();
         // in order to have a graph, we must have at least two points.
-        int numPoints = 0;
-        while (numPoints < 2) {
-            if (build == null) {
-                return false;
-            }
-            if( this.job instanceof MatrixProject )
-            {
-                MatrixProject mp = (MatrixProject) this.job;
- 
-                for (Job<?, ?> j : mp.getAllJobs()) {
-                   if (j != mp) { //getAllJobs includes the parent job too, so skip that
-                       Run<?,?> sub = j.getBuild(build.getId());
-                       if(sub != null) {
-                           // Not all builds are on all subprojects
-                           if (sub.getAction(getBuildActionClass()) != null) {
-                               //data for at least 1 sub-job on this build
-                               numPoints++;
-                               break; // go look at the next build now
-                           }
-                       }
-                   }
+        return getTrend().size() >= 2;
+    }
+
+    /**
+     * @return the summary of the builds with TAP results, newest first, read from
+     *         the {@link TapTrendIndex} of the job, or of its configurations for
+     *         matrix projects
+     */
+    protected List<TapTrendIndex.Entry> getTrend() {
+        if (!(this.job instanceof MatrixProject)) {
+            return TapTrendIndex.getEntries(this.job);
+        }
+        MatrixProject mp = (MatrixProject) this.job;
+        final SortedMap<Integer, TapTrendIndex.Entry> merged = new TreeMap<>(Collections.reverseOrder());
+        for (Job<?, ?> j : mp.getAllJobs()) {
+            if (j != mp) { //getAllJobs includes the parent job too, so skip that
+                // Not all builds are on all subprojects
+                for (TapTrendIndex.Entry entry : TapTrendIndex.getEntries(j)) {
+                    merged.merge(entry.getNumber(), entry, TapTrendIndex.Entry::add);
                 }
             }
-            else
-            {
-                if (build.getAction(getBuildActionClass()) != null) {
-                    numPoints++;
-                }
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    private long getTrendLastModified() {
+        long lastModified = TapTrendIndex.lastModified(this.job);
+        if (this.job instanceof MatrixProject) {
+            MatrixProject mp = (MatrixProject) this.job;
+            for (Job<?, ?> j : mp.getAllJobs()) {
+                lastModified = Math.max(lastModified, TapTrendIndex.lastModified(j));
             }
-            build = build.getPreviousBuild();
         }
-        return true;
+        return lastModified;
     }
 
     /**
@@ -211,9 +192,9 @@ public class TapProjectAction extends AbstractTapProjectAction {
      * @return true, if new image does NOT need to be generated, false otherwise
      */
     private boolean newGraphNotNeeded( final StaplerRequest req, StaplerResponse rsp ) {
-        final Calendar t = this.job.getLastCompletedBuild().getTimestamp();
         final int prevNumBuilds = requestMap.getOrDefault(req.getRequestURI(), 0);
-        final int numBuilds = (int) this.job.getBuilds().stream().count();
+        final int numBuilds = getTrend().size();
+        final long t = getTrendLastModified();
 
         if (prevNumBuilds != numBuilds) {
             requestMap.put(req.getRequestURI(), numBuilds);
@@ -231,69 +212,21 @@ public class TapProjectAction extends AbstractTapProjectAction {
         return prevNumBuilds == numBuilds && req.checkIfModified(t, rsp);
     }
 
-    protected void populateDataSetBuilder(DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel> dataset ) {
-
-        Job<?, ?> p = this.job;
-        
-        for (Run<?, ?> build = this.job.getLastBuild(); build != null; build = build.getPreviousBuild()) {
-
-            /*
-             * The build has most likely failed before any TAP data was recorded.
-             *
-             * If we don't exclude such builds, we'd have to account for that in GraphHelper. Besides, that, it's not
-             * consistent with JUnit graph behaviour where builds without test results are not included in graph.
-             */
-            if (build.getAction(TapBuildAction.class) == null) {
-                continue;
-            }
-
-            ChartUtil.NumberOnlyBuildLabel label = new ChartUtil.NumberOnlyBuildLabel(build);
-
-            Result r = new Result();
-            
-            if( p instanceof MatrixProject )
-            {
-                MatrixProject mp = (MatrixProject) p;
- 
-                for (Job<?, ?> j : mp.getAllJobs()) {
-                   if (j != mp) { //getAllJobs includes the parent job too, so skip that
-                       Run<?,?> sub = j.getBuild(build.getId());
-                       if(sub != null) {
-                           // Not all builds are on all subprojects
-                           r.add(summarizeBuild(sub));
-                       }
-                   }
-                }
-            }
-            else
-            {
-                r = summarizeBuild(build);
-            }
-            
-            dataset.add(r.numPassed, "Passed", label);
-            dataset.add(r.numFailed, "Failed", label);
-            dataset.add(r.numSkipped, "Skipped", label);
-            dataset.add(r.numToDo, "ToDo", label);
+    protected void populateDataSetBuilder(DataSetBuilder<String, TapTrendIndex.Entry> dataset ) {
+        /*
+         * Builds that failed before any TAP data was recorded are not in the index.
+         *
+         * If we included such builds, we'd have to account for that in GraphHelper. Besides, that, it's not
+         * consistent with JUnit graph behaviour where builds without test results are not included in graph.
+         */
+        for (TapTrendIndex.Entry entry : getTrend()) {
+            dataset.add(entry.getPassed(), "Passed", entry);
+            dataset.add(entry.getFailed(), "Failed", entry);
+            dataset.add(entry.getSkipped(), "Skipped", entry);
+            dataset.add(entry.getToDo(), "ToDo", entry);
         }
     }
 
-    protected Result summarizeBuild(Run<?,?> b)
-    {
-        Result r = new Result();
-        
-        TapBuildAction action = b.getAction(getBuildActionClass());
-        if (action != null) {
-            TapResult report = action.getResult();
-            report.tally();
-
-            r.numPassed = report.getPassed();
-            r.numFailed = report.getFailed();
-            r.numSkipped = report.getSkipped();
-            r.numToDo = report.getToDo();
-        }
-
-        return r;
-    }
     /**
      * Getter for property 'graphWidth'.
      * 
@@ -29,16 +29,21 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
+import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
 
 import org.apache.commons.lang.BooleanUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.StaplerRequest;
 import org.tap4j.model.Plan;
 import org.tap4j.model.TestSet;
+import org.tap4j.plugin.model.ParseErrorTestSetMap;
+import org.tap4j.plugin.model.StreamedTestSetMap;
 import org.tap4j.plugin.model.TestSetMap;
+import org.tap4j.plugin.util.CompressionUtil;
+import org.tap4j.plugin.util.ConsoleEcho;
 import org.tap4j.plugin.util.Constants;
 import org.jenkinsci.Symbol;
 
@@ -62,6 +67,7 @@ import hudson.tasks.Publisher;
 import hudson.tasks.Recorder;
 import hudson.tasks.test.TestResultAggregator;
 import jenkins.tasks.SimpleBuildStep;
+import net.sf.json.JSONObject;
 
 /**
  * Publishes TAP results in Jenkins builds.
@@ -104,6 +110,42 @@ public class TapPublisher extends Recorder implements MatrixAggregatable, Simple
      * Skip the publisher if the build status is not OK (worse than unstable)
      */
     private final Boolean skipIfBuildNotOk;
+    /**
+     * Number of threads used to parse the TAP files (1 parses them sequentially)
+     */
+    private int parseThreads = DEFAULT_PARSE_THREADS;
+    /**
+     * Parse the TAP files in the node where they were found, instead of the controller
+     */
+    private boolean parseOnAgent;
+    /**
+     * TAP files with this size or larger, in megabytes, are parsed in streaming mode (0 disables it)
+     */
+    private int streamingThreshold;
+    /**
+     * Store the TAP files in the build directory compressed with gzip
+     */
+    private boolean compressReports;
+    /**
+     * Lines printed from the start and from the end of each TAP stream output to the console (0 for all)
+     */
+    private int outputTapHeadLines;
+    private int outputTapTailLines;
+    /**
+     * Maximum size, in kilobytes, of each TAP stream output to the console (0 for no limit)
+     */
+    private int outputTapMaxSize;
+    /**
+     * Output only the failed tests and bail outs of the TAP streams to the console
+     */
+    private boolean outputTapOnlyFailures;
+
+    private static final int DEFAULT_PARSE_THREADS = 1;
+
+    /**
+     * Characters that separate or match files in an ant pattern
+     */
+    private static final Pattern NOT_INCLUDABLE = Pattern.compile("[\\s,*?\\\\]");
 
     @DataBoundConstructor
     public TapPublisher(String testResults,
@@ -165,7 +207,7 @@ public class TapPublisher extends Recorder implements MatrixAggregatable, Simple
         final Boolean _removeYamlIfCorrupted = BooleanUtils.toBooleanDefaultIfNull(this.getRemoveYamlIfCorrupted(), false);
         final Boolean _skipIfBuildNotOk = BooleanUtils.toBooleanDefaultIfNull(this.skipIfBuildNotOk, false);
 
-        return new TapPublisher(
+        final TapPublisher publisher = new TapPublisher(
                 _testResults,
                 _failIfNoResults,
                 _failedTestsMarkBuildAsFailure,
@@ -183,6 +225,15 @@ public class TapPublisher extends Recorder implements MatrixAggregatable, Simple
                 _removeYamlIfCorrupted,
                 _skipIfBuildNotOk
         );
+        publisher.setParseThreads(this.parseThreads);
+        publisher.setParseOnAgent(this.parseOnAgent);
+        publisher.setStreamingThreshold(this.streamingThreshold);
+        publisher.setCompressReports(this.compressReports);
+        publisher.setOutputTapHeadLines(this.outputTapHeadLines);
+        publisher.setOutputTapTailLines(this.outputTapTailLines);
+        publisher.setOutputTapMaxSize(this.outputTapMaxSize);
+        publisher.setOutputTapOnlyFailures(this.outputTapOnlyFailures);
+        return publisher;
     }
 
     public Boolean getShowOnlyFailures() {
@@ -270,6 +321,93 @@ public class TapPublisher extends Recorder implements MatrixAggregatable, Simple
         return skipIfBuildNotOk;
     }
 
+    public int getParseThreads() {
+        return parseThreads < 1 ? DEFAULT_PARSE_THREADS : parseThreads;
+    }
+
+    @DataBoundSetter
+    public void setParseThreads(int parseThreads) {
+        this.parseThreads = Math.max(DEFAULT_PARSE_THREADS, parseThreads);
+    }
+
+    public boolean getParseOnAgent() {
+        return parseOnAgent;
+    }
+
+    @DataBoundSetter
+    public void setParseOnAgent(boolean parseOnAgent) {
+        this.parseOnAgent = parseOnAgent;
+    }
+
+    /**
+     * @return size in megabytes from which the TAP files are parsed in streaming mode, 0 if disabled
+     */
+    public int getStreamingThreshold() {
+        return streamingThreshold;
+    }
+
+    @DataBoundSetter
+    public void setStreamingThreshold(int streamingThreshold) {
+        this.streamingThreshold = Math.max(0, streamingThreshold);
+    }
+
+    long getStreamingThresholdBytes() {
+        return getStreamingThreshold() * 1024L * 1024L;
+    }
+
+    public boolean getCompressReports() {
+        return compressReports;
+    }
+
+    @DataBoundSetter
+    public void setCompressReports(boolean compressReports) {
+        this.compressReports = compressReports;
+    }
+
+    public int getOutputTapHeadLines() {
+        return outputTapHeadLines;
+    }
+
+    @DataBoundSetter
+    public void setOutputTapHeadLines(int outputTapHeadLines) {
+        this.outputTapHeadLines = Math.max(0, outputTapHeadLines);
+    }
+
+    public int getOutputTapTailLines() {
+        return outputTapTailLines;
+    }
+
+    @DataBoundSetter
+    public void setOutputTapTailLines(int outputTapTailLines) {
+        this.outputTapTailLines = Math.max(0, outputTapTailLines);
+    }
+
+    /**
+     * @return maximum size in kilobytes of each TAP stream output to the console, 0 for no limit
+     */
+    public int getOutputTapMaxSize() {
+        return outputTapMaxSize;
+    }
+
+    @DataBoundSetter
+    public void setOutputTapMaxSize(int outputTapMaxSize) {
+        this.outputTapMaxSize = Math.max(0, outputTapMaxSize);
+    }
+
+    public boolean getOutputTapOnlyFailures() {
+        return outputTapOnlyFailures;
+    }
+
+    @DataBoundSetter
+    public void setOutputTapOnlyFailures(boolean outputTapOnlyFailures) {
+        this.outputTapOnlyFailures = outputTapOnlyFailures;
+    }
+
+    ConsoleEcho getConsoleEcho() {
+        return new ConsoleEcho(getOutputTapHeadLines(), getOutputTapTailLines(), getOutputTapMaxSize() * 1024L,
+                getOutputTapOnlyFailures());
+    }
+
     /**
      * Gets the directory where the plug-in saves its TAP streams before processing them and
      * displaying in the UI.
@@ -322,16 +460,19 @@ public class TapPublisher extends Recorder implements MatrixAggregatable, Simple
             String antPattern = Util.replaceMacro(this.testResults, envVars);
             logger.println("Looking for TAP results report in workspace using pattern: " + antPattern);
 
-            FilePath[] reports = locateReports(workspace, antPattern);
-
             /*
              * filter out the reports based on timestamps. See JENKINS-12187
              */
-            if (this.getDiscardOldReports()) {
-                reports = checkReports(build, reports, logger);
+            final long notBefore = this.getDiscardOldReports() ? build.getTimestamp().getTimeInMillis() : 0;
+            // the digests are compared with the reports saved by a previous publisher of this build
+            final boolean saved = new File(TapPublisher.getReportsDirectory(build).getRemote()).isDirectory();
+            final TapReportsCallable.Reports found = workspace.act(new TapReportsCallable(antPattern, notBefore, saved));
+            for (String discarded : found.getDiscarded()) {
+                logger.println(discarded + " was last modified before " + "this build started. Ignoring it.");
             }
+            final List<TapReportsCallable.Report> reports = found.getReports();
 
-            if (reports.length == 0) {
+            if (reports.isEmpty()) {
                 if (this.getFailIfNoResults()) {
                     logger.println("Did not find any matching files. Setting build result to FAILURE.");
                     build.setResult(Result.FAILURE);
@@ -342,23 +483,41 @@ public class TapPublisher extends Recorder implements MatrixAggregatable, Simple
                 return;
             }
 
-            boolean filesSaved = saveReports(workspace, TapPublisher.getReportsDirectory(build), reports, logger);
+            final TapParseCache cache = TapParseCache.of(build);
+            boolean filesSaved = saveReports(workspace, TapPublisher.getReportsDirectory(build), reports,
+                    cache, logger);
             if (!filesSaved) {
                 logger.println("Failed to save TAP reports");
                 return;
             }
 
+            // files parsed in the agent do not use the controller memory
+            final DescriptorImpl descriptor = (DescriptorImpl) getDescriptor();
+            final TapParseLimiter.Permit permit = this.getParseOnAgent() ? TapParseLimiter.Permit.NONE
+                    : TapParseLimiter.acquire(descriptor.getMaxConcurrentParses(), descriptor.getParseHeapAdmission(),
+                            getParsedTreeSize(reports), logger);
             TapResult testResult = null;
             try {
-                testResult = loadResults(antPattern, build, logger);
+                testResult = this.getParseOnAgent()
+                        ? loadResultsOnAgent(workspace, reports, build, listener)
+                        : loadResults(reports, build, logger);
                 testResult.setShowOnlyFailures(this.getShowOnlyFailures());
                 testResult.tally();
+            } catch (InterruptedException e) {
+                // the build was aborted, the results parsed so far are not recorded
+                throw e;
             } catch (Throwable t) {
                 /*
                  * don't fail build if TAP parser barfs. only print out the
                  * exception to console.
                  */
                 t.printStackTrace(logger);
+            } finally {
+                permit.release();
+            }
+
+            if (this.getCompressReports()) {
+                compressReports(TapPublisher.getReportsDirectory(build), reports, cache, logger);
             }
 
             TapTestResultAction trAction = build.getAction(TapTestResultAction.class);
@@ -379,15 +538,23 @@ public class TapPublisher extends Recorder implements MatrixAggregatable, Simple
             assert testResult != null;
             if (!testResult.getTestSets().isEmpty() || !testResult.getParseErrorTestSets().isEmpty()) {
                 // create an individual report for all the results and add it to
-                // the build
+                // the build. It shows the results of the TapTestResultAction,
+                // which were already merged above
 
                 TapBuildAction action = build.getAction(TapBuildAction.class);
                 if (action == null) {
-                    action = new TapBuildAction(build, testResult);
+                    action = new TapBuildAction(build);
                     build.addAction(action);
                 } else {
                     appending = true;
-                    action.mergeResult(testResult);
+                }
+                TapTrendIndex.record(build, trAction.getStoredSummary());
+                TapTestHistory.record(build, trAction.getStoredTapResult());
+                try {
+                    TapAttachmentStore.extract(build, testResult);
+                } catch (IOException | RuntimeException e) {
+                    // attachments are still downloaded from the TAP files
+                    logger.println("Failed to extract the TAP attachments: " + e.getMessage());
                 }
 
                 if (testResult.hasParseErrors()) {
@@ -457,7 +624,9 @@ public class TapPublisher extends Recorder implements MatrixAggregatable, Simple
             Plan plan = testSet.getPlan();
             if (plan != null) {
                 int planned = plan.getLastTestNumber();
-                int numberOfTests = testSet.getTestResults().size();
+                int numberOfTests = testSetMap instanceof StreamedTestSetMap
+                        ? ((StreamedTestSetMap) testSetMap).getCounts().getTotal()
+                        : testSet.getTestResults().size();
                 if (planned != numberOfTests)
                     return false;
             }
@@ -465,17 +634,44 @@ public class TapPublisher extends Recorder implements MatrixAggregatable, Simple
         return true;
     }
 
-    private TapResult loadResults(String antPattern, Run<?, ?> owner, PrintStream logger) {
+    /**
+     * @return size of the reports that are parsed into a test set tree, the others are parsed in streaming mode
+     */
+    private long getParsedTreeSize(List<TapReportsCallable.Report> reports) {
+        final long streamingThreshold = getStreamingThresholdBytes();
+        long size = 0;
+        for (TapReportsCallable.Report report : reports) {
+            if (streamingThreshold == 0 || report.getSize() < streamingThreshold) {
+                size += report.getSize();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Parses the reports in the controller, from the copies saved in the build. Only the
+     * reports found by this publisher are parsed, as in the agent.
+     */
+    private TapResult loadResults(List<TapReportsCallable.Report> reports, Run<?, ?> owner, PrintStream logger)
+            throws InterruptedException {
         final FilePath tapDir = TapPublisher.getReportsDirectory(owner);
-        FilePath[] results;
+        final FilePath[] results = new FilePath[reports.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = tapDir.child(reports.get(i).getPath());
+        }
         TapResult tr;
         try {
-            results = tapDir.list(antPattern);
             final TapParser parser = new TapParser(getOutputTapToConsole(), getEnableSubtests(), getTodoIsFailure(), getIncludeCommentDiagnostics(),
                     getValidateNumberOfTests(), getPlanRequired(), getVerbose(), getStripSingleParents(), getFlattenTapResult(), getRemoveYamlIfCorrupted(), logger);
+            parser.setParseThreads(getParseThreads());
+            parser.setStreamingThreshold(getStreamingThresholdBytes());
+            parser.setConsoleEcho(getConsoleEcho());
+            parser.setCache(TapParseCache.of(owner));
             final TapResult result = parser.parse(results, owner);
             result.setOwner(owner);
             return result;
+        } catch (InterruptedException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace(logger);
 
@@ -485,14 +681,73 @@ public class TapPublisher extends Recorder implements MatrixAggregatable, Simple
         }
     }
 
-    private boolean saveReports(FilePath workspace, FilePath tapDir, FilePath[] reports,
-                                PrintStream logger) {
+    /**
+     * Parses the reports in the node that holds the workspace. Only the parsed test sets
+     * are transferred back to the controller.
+     */
+    private TapResult loadResultsOnAgent(FilePath workspace, List<TapReportsCallable.Report> reports, Run<?, ?> owner,
+            TaskListener listener) throws InterruptedException {
+        final FilePath tapDir = TapPublisher.getReportsDirectory(owner);
+        TapResult tr;
+        try {
+            final List<String> relativePaths = new ArrayList<>(reports.size());
+            for (TapReportsCallable.Report report : reports) {
+                relativePaths.add(report.getPath());
+            }
+            final List<TestSetMap> parsed = workspace.act(
+                    new TapParserCallable(relativePaths.toArray(new String[0]), this, listener));
+
+            // use the archived files names, as if the files had been parsed in the controller
+            final List<TestSetMap> testSets = new ArrayList<>(parsed.size());
+            for (TestSetMap map : parsed) {
+                final String fileName = tapDir.child(map.getFileName()).getRemote();
+                if (map instanceof ParseErrorTestSetMap) {
+                    testSets.add(new ParseErrorTestSetMap(fileName, ((ParseErrorTestSetMap) map).getCause()));
+                } else {
+                    testSets.add(map.withFileName(fileName));
+                }
+            }
+            tr = new TapResult("TAP Test Results", owner, testSets, getTodoIsFailure(), getIncludeCommentDiagnostics(), getValidateNumberOfTests());
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace(listener.getLogger());
+
+            tr = new TapResult("", owner, Collections.emptyList(), getTodoIsFailure(), getIncludeCommentDiagnostics(), getValidateNumberOfTests());
+        }
+        tr.setOwner(owner);
+        return tr;
+    }
+
+    private boolean saveReports(FilePath workspace, FilePath tapDir, List<TapReportsCallable.Report> reports,
+                                TapParseCache cache, PrintStream logger) {
         logger.println("Saving reports...");
         try {
             tapDir.mkdirs();
-            for (FilePath report : reports) {
-                FilePath dst = Objects.requireNonNull(getDistDir(workspace, tapDir, report));
-                report.copyTo(dst);
+            final List<String> bulk = new ArrayList<>(reports.size());
+            for (TapReportsCallable.Report report : reports) {
+                // used to maintain the directory structure when persisting to the tap-reports dir
+                final FilePath dst = tapDir.child(report.getPath());
+                final File dstFile = new File(dst.getRemote());
+                final FilePath src = workspace.child(report.getPath());
+                if (report.getDigest() != null && dstFile.isFile()
+                        && (dstFile.length() == report.getSize() || CompressionUtil.isGzip(dstFile))
+                        && report.getDigest().equals(cache.digest(dstFile))) {
+                    // already saved by a previous publisher of this build
+                    continue;
+                }
+                cache.invalidate(dstFile);
+                if (isIncludable(report.getPath())) {
+                    bulk.add(report.getPath());
+                } else {
+                    src.copyTo(dst);
+                }
+            }
+            if (bulk.size() == 1) {
+                workspace.child(bulk.get(0)).copyTo(tapDir.child(bulk.get(0)));
+            } else if (!bulk.isEmpty()) {
+                // a single archive stream, instead of a remote copy for each file
+                workspace.copyRecursiveTo(String.join(",", bulk), tapDir);
             }
         } catch (IOException | InterruptedException e) {
             e.printStackTrace(logger);
@@ -502,66 +757,31 @@ public class TapPublisher extends Recorder implements MatrixAggregatable, Simple
     }
 
     /**
-     * Used to maintain the directory structure when persisting to the tap-reports dir.
-     *
-     * @param workspace Jenkins WS
-     * @param tapDir    tap reports dir
-     * @param orig      original directory
-     * @return persisted directory virtual structure
-     */
-    @Nullable
-    private FilePath getDistDir(FilePath workspace, FilePath tapDir, FilePath orig) {
-        if (orig == null)
-            return null;
-        StringBuilder difference = new StringBuilder();
-        FilePath parent = orig.getParent();
-        if (parent == null) {
-            return null;
-        }
-        do {
-            if (parent.equals(workspace))
-                break;
-            difference.insert(0, parent.getName() + File.separatorChar);
-        } while ((parent = parent.getParent()) != null);
-        difference.append(orig.getName());
-        return tapDir.child(difference.toString());
-    }
-
-    /**
-     * Checks that there are new report files.
+     * Compresses the saved reports, once parsed. Their digests are computed before, so
+     * that publishing the same files again does not copy them again.
      */
-    private FilePath[] checkReports(Run<?, ?> build,
-                                    FilePath[] reports, PrintStream logger) {
-        List<FilePath> filePathList = new ArrayList<>(reports.length);
-
-        for (FilePath report : reports) {
-            /*
-             * Check that the file was created as part of this build and is not
-             * something left over from before.
-             *
-             * Checks that the last modified time of file is greater than the
-             * start time of the build
-             */
+    private void compressReports(FilePath tapDir, List<TapReportsCallable.Report> reports, TapParseCache cache,
+                                 PrintStream logger) {
+        for (TapReportsCallable.Report report : reports) {
+            final File file = new File(tapDir.child(report.getPath()).getRemote());
             try {
-                /*
-                 * dividing by 1000 and comparing because we want to compare
-                 * secs and not milliseconds
-                 */
-                if (build.getTimestamp().getTimeInMillis() / 1000 <= report.lastModified() / 1000) {
-                    filePathList.add(report);
-                } else {
-                    logger.println(report.getName() + " was last modified before " + "this build started. Ignoring it.");
+                if (file.isFile()) {
+                    cache.digest(file);
+                    CompressionUtil.compress(file);
                 }
-            } catch (IOException | InterruptedException e) {
-                // just log the exception
-                e.printStackTrace(logger);
+            } catch (IOException e) {
+                // the file is still readable, uncompressed
+                logger.println("Failed to compress " + report.getPath() + ": " + e.getMessage());
             }
         }
-        return filePathList.toArray(new FilePath[]{});
     }
 
-    private FilePath[] locateReports(FilePath workspace, String testResults) throws IOException, InterruptedException {
-        return workspace.list(testResults);
+    /**
+     * @param path path relative to the workspace
+     * @return whether the path can be part of an ant pattern that includes only that file
+     */
+    private static boolean isIncludable(String path) {
+        return !NOT_INCLUDABLE.matcher(path).find();
     }
 
     /*
@@ -585,11 +805,44 @@ public class TapPublisher extends Recorder implements MatrixAggregatable, Simple
     @Extension
     @Symbol("publishTap")
     public static class DescriptorImpl extends BuildStepDescriptor<Publisher> {
+
+        /**
+         * Maximum number of builds parsing TAP files in the controller at the same time (0 for no limit)
+         */
+        private int maxConcurrentParses;
+        /**
+         * Wait for free memory before parsing large TAP files in the controller
+         */
+        private boolean parseHeapAdmission = true;
+
         public DescriptorImpl() {
             super(TapPublisher.class);
             load();
         }
 
+        public int getMaxConcurrentParses() {
+            return maxConcurrentParses;
+        }
+
+        public void setMaxConcurrentParses(int maxConcurrentParses) {
+            this.maxConcurrentParses = Math.max(0, maxConcurrentParses);
+        }
+
+        public boolean getParseHeapAdmission() {
+            return parseHeapAdmission;
+        }
+
+        public void setParseHeapAdmission(boolean parseHeapAdmission) {
+            this.parseHeapAdmission = parseHeapAdmission;
+        }
+
+        @Override
+        public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+            req.bindJSON(this, json);
+            save();
+            return true;
+        }
+
         @Nonnull
         @Override
         public String getDisplayName() {
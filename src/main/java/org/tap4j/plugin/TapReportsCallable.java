@@ -0,0 +1,174 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.tools.ant.DirectoryScanner;
+
+import javax.annotation.CheckForNull;
+
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Finds the TAP files in the workspace, where it is located (usually an agent), and
+ * sends back their paths, sizes, modification times and, when asked for, digests at
+ * once, instead of asking for each file separately. Files modified before the build
+ * started can also be discarded there.
+ *
+ * @since 2.4.5
+ */
+public class TapReportsCallable extends MasterToSlaveFileCallable<TapReportsCallable.Reports> {
+
+    private static final long serialVersionUID = 8208934213744123398L;
+
+    private final String includes;
+    private final long notBefore;
+    private final boolean digests;
+
+    /**
+     * @param includes ant pattern of the TAP files, relative to the workspace
+     * @param notBefore files modified before this time, in milliseconds, are discarded.
+     *                  Compared in seconds, {@code 0} keeps every file
+     */
+    public TapReportsCallable(String includes, long notBefore) {
+        this(includes, notBefore, false);
+    }
+
+    /**
+     * @param includes ant pattern of the TAP files, relative to the workspace
+     * @param notBefore files modified before this time, in milliseconds, are discarded.
+     *                  Compared in seconds, {@code 0} keeps every file
+     * @param digests whether to compute the MD5 digest of each file, to compare it with
+     *                a copy already saved in the build
+     */
+    public TapReportsCallable(String includes, long notBefore, boolean digests) {
+        this.includes = includes;
+        this.notBefore = notBefore;
+        this.digests = digests;
+    }
+
+    @Override
+    public Reports invoke(File workspace, VirtualChannel channel) throws IOException, InterruptedException {
+        if (new File(includes).isAbsolute()) {
+            // as FilePath#list, the pattern must stay in the workspace
+            throw new IOException("Expecting Ant GLOB pattern relative to the workspace, but saw '"
+                    + includes + "'. See https://ant.apache.org/manual/Types/fileset.html for syntax");
+        }
+        final DirectoryScanner ds = Util.createFileSet(workspace, includes).getDirectoryScanner();
+        final String[] files = ds.getIncludedFiles();
+        final List<Report> reports = new ArrayList<>(files.length);
+        final List<String> discarded = new ArrayList<>(0);
+        for (String file : files) {
+            final File f = new File(workspace, file);
+            final long lastModified = f.lastModified();
+            // the agent may not use the same file separator
+            final String path = file.replace(File.separatorChar, '/');
+            if (notBefore > 0 && notBefore / 1000 > lastModified / 1000) {
+                discarded.add(path);
+            } else {
+                reports.add(new Report(path, f.length(), lastModified, digests ? Util.getDigestOf(f) : null));
+            }
+        }
+        return new Reports(reports, discarded);
+    }
+
+    /**
+     * A TAP file found in the workspace.
+     */
+    public static final class Report implements Serializable {
+
+        private static final long serialVersionUID = -2945207155606719564L;
+
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final String digest;
+
+        Report(String path, long size, long lastModified, String digest) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+
+        /**
+         * @return path relative to the workspace, separated by {@code /}
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return MD5 digest of the file, {@code null} if it was not asked for
+         */
+        @CheckForNull
+        public String getDigest() {
+            return digest;
+        }
+    }
+
+    /**
+     * The TAP files found, and those discarded for being older than the build.
+     */
+    public static final class Reports implements Serializable {
+
+        private static final long serialVersionUID = 3338406052373208463L;
+
+        private final List<Report> reports;
+        private final List<String> discarded;
+
+        Reports(List<Report> reports, List<String> discarded) {
+            this.reports = reports;
+            this.discarded = discarded;
+        }
+
+        public List<Report> getReports() {
+            return Collections.unmodifiableList(reports);
+        }
+
+        /**
+         * @return paths of the files modified before the build started
+         */
+        public List<String> getDiscarded() {
+            return Collections.unmodifiableList(discarded);
+        }
+    }
+
+}
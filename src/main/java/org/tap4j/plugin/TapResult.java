@@ -28,8 +28,10 @@ import hudson.model.ModelObject;
 import hudson.model.Run;
 import hudson.tasks.test.TestObject;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.BooleanUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.Stapler;
@@ -41,26 +43,36 @@ import org.tap4j.consumer.TapConsumerFactory;
 import org.tap4j.model.BailOut;
 import org.tap4j.model.Comment;
 import org.tap4j.model.Plan;
+import org.tap4j.model.TapElement;
 import org.tap4j.model.TestResult;
 import org.tap4j.model.TestSet;
 import org.tap4j.plugin.model.ParseErrorTestSetMap;
+import org.tap4j.plugin.model.StreamedTestSetMap;
 import org.tap4j.plugin.model.TapAttachment;
+import org.tap4j.plugin.model.TapResultSummary;
 import org.tap4j.plugin.model.TestSetMap;
+import org.tap4j.plugin.util.CompressionUtil;
 import org.tap4j.plugin.util.Constants;
+import org.tap4j.plugin.util.DiagnosticRows;
 import org.tap4j.plugin.util.DiagnosticUtil;
 import org.tap4j.plugin.util.Util;
+import org.tap4j.util.StatusValues;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 /**
  * @author Bruno P. Kinoshita - <a href="https://kinoshita.eti.br">...</a>
@@ -74,6 +86,13 @@ public class TapResult implements ModelObject, Serializable {
 
     private static final String DURATION_KEY = "duration_ms";
 
+    /**
+     * Number of TAP lines of a file shown per page of the report, unless requested otherwise.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private transient Run<?, ?> build;
     private final  List<TestSetMap> testSets;
     private final  List<TestSetMap> parseErrorTestSets;
@@ -89,6 +108,21 @@ public class TapResult implements ModelObject, Serializable {
     private final Boolean includeCommentDiagnostics;
     private final Boolean validateNumberOfTests;
     private Boolean showOnlyFailures = Boolean.FALSE;
+    /**
+     * Whether the counters are up to date. The test sets do not change after the
+     * result is created, so they are tallied only once.
+     */
+    private transient boolean tallied = false;
+    /**
+     * Positions of the failed tests of each test set, see {@link #getFailureIndex()}.
+     */
+    private int[][] failureIndex;
+    private transient TapResultSummary summary;
+    /**
+     * Differences with the previous build, see {@link #getDiff()}. Kept while the
+     * previous build with TAP results is the same.
+     */
+    private transient volatile TapResultDiff diff;
 
     public TapResult(String name, Run<?, ?> owner, List<TestSetMap> testSets, Boolean todoIsFailure,
             Boolean includeCommentDiagnostics, Boolean validateNumberOfTests) {
@@ -101,7 +135,15 @@ public class TapResult implements ModelObject, Serializable {
         this.validateNumberOfTests = validateNumberOfTests;
     }
 
+    /**
+     * @param testSets test sets to be added
+     * @return a new result with the test sets of this result and the given ones, or this
+     *         result if there is nothing to add
+     */
     public TapResult copyWithExtraTestSets(List<TestSetMap> testSets) {
+        if (testSets.isEmpty()) {
+            return this;
+        }
         List<TestSetMap> mergedTestSets = new ArrayList<>(getTestSets());
         mergedTestSets.addAll(testSets);
 
@@ -181,14 +223,29 @@ public class TapResult implements ModelObject, Serializable {
                 } catch (IOException e) {
                     LOGGER.warning(e.getMessage());
                 }
-                filtered.add(
-                        new TestSetMap(Util.normalizeFolders(rootDir, testSet.getFileName()), testSet.getTestSet()));
+                filtered.add(testSet.withFileName(Util.normalizeFolders(rootDir, testSet.getFileName())));
             }
         }
         return filtered;
     }
 
+    /**
+     * Counters persisted with the result are already tallied.
+     *
+     * @return this
+     */
+    protected Object readResolve() {
+        this.tallied = true;
+        return this;
+    }
+
+    /**
+     * Computes the counters of the test sets. Does nothing if they were already computed.
+     */
     public void tally() {
+        if (tallied) {
+            return;
+        }
 
         failed = 0;
         passed = 0;
@@ -198,41 +255,231 @@ public class TapResult implements ModelObject, Serializable {
         total = 0;
         duration = 0.0f;
 
-        for (TestSetMap testSet : testSets) {
-            TestSet realTestSet = testSet.getTestSet();
-            List<TestResult> testResults = realTestSet.getTestResults();
+        final int[][] failures = new int[testSets.size()][];
+        for (int i = 0; i < testSets.size(); i++) {
+            final IntStream.Builder positions = IntStream.builder();
+            final TapResultSummary counts = summarize(testSets.get(i), positions);
+            failures[i] = positions.build().toArray();
+            this.passed += counts.getPassed();
+            this.failed += counts.getFailed();
+            this.skipped += counts.getSkipped();
+            this.todo += counts.getToDo();
+            this.bailOuts += counts.getBailOuts();
+            this.total += counts.getTotal();
+            this.duration += counts.getDuration();
+        }
+        failureIndex = failures;
+        tallied = true;
+    }
 
-            total += testResults.size();
+    /**
+     * Returns the positions of the failed tests in the test results of each test set,
+     * in the order of {@link #getTestSets()}. It is computed when the result is tallied,
+     * or when first requested for results stored before 2.4.5. It must not be modified.
+     *
+     * @return positions of the failed tests of each test set
+     * @since 2.4.5
+     */
+    public synchronized int[][] getFailureIndex() {
+        if (failureIndex == null) {
+            final int[][] failures = new int[testSets.size()][];
+            for (int i = 0; i < testSets.size(); i++) {
+                final IntStream.Builder positions = IntStream.builder();
+                summarize(testSets.get(i), positions);
+                failures[i] = positions.build().toArray();
+            }
+            failureIndex = failures;
+        }
+        return failureIndex;
+    }
 
-            Plan plan = realTestSet.getPlan();
+    /**
+     * @param testSet a test set of this result
+     * @return the counters of the test set
+     * @since 2.4.5
+     */
+    public TapResultSummary getFileSummary(TestSetMap testSet) {
+        return summarize(testSet, null);
+    }
 
-            if (plan != null && plan.isSkip()) {
-                this.skipped += testResults.size();
-            } else {
-                for (TestResult testResult : testResults) {
-                    if (Util.isSkipped(testResult)) {
-                        skipped += 1;
-                    } else if (Util.isFailure(testResult, todoIsFailure)) {
-                        failed += 1;
-                    } else if (Util.isTodo(testResult)) {
-                        todo += 1;
-                    } else {
-                        passed += 1;
+    /**
+     * @param testSet a test set of this result
+     * @param failures receives the positions of the failed tests, if not {@code null}
+     * @return the counters of the test set
+     */
+    private TapResultSummary summarize(TestSetMap testSet, @CheckForNull IntStream.Builder failures) {
+        if (testSet instanceof StreamedTestSetMap) {
+            // only some of its tests were kept, it was counted while parsed
+            if (failures != null) {
+                final List<TestResult> kept = testSet.getTestSet().getTestResults();
+                for (int position = 0; position < kept.size(); position++) {
+                    if (!Util.isSkipped(kept.get(position)) && Util.isFailure(kept.get(position), todoIsFailure)) {
+                        failures.add(position);
                     }
-                    // FIXME: code duplication. Refactor it and TapTestResultResult
-                    Map<String, Object> diagnostic = testResult.getDiagnostic();
-                    if (diagnostic != null && !diagnostic.isEmpty()) {
-                        Object duration = diagnostic.get(DURATION_KEY);
-                        if (duration != null) {
-                            float durationMS = Float.parseFloat(duration.toString());
-                            this.duration += durationMS;
-                        }
+                }
+            }
+            return ((StreamedTestSetMap) testSet).getCounts();
+        }
+        int filePassed = 0;
+        int fileFailed = 0;
+        int fileSkipped = 0;
+        int fileTodo = 0;
+        float fileDuration = 0.0f;
+
+        TestSet realTestSet = testSet.getTestSet();
+        List<TestResult> testResults = realTestSet.getTestResults();
+
+        Plan plan = realTestSet.getPlan();
+
+        if (plan != null && plan.isSkip()) {
+            fileSkipped += testResults.size();
+        } else {
+            int position = -1;
+            for (TestResult testResult : testResults) {
+                position++;
+                if (Util.isSkipped(testResult)) {
+                    fileSkipped += 1;
+                } else if (Util.isFailure(testResult, todoIsFailure)) {
+                    fileFailed += 1;
+                    if (failures != null) {
+                        failures.add(position);
+                    }
+                } else if (Util.isTodo(testResult)) {
+                    fileTodo += 1;
+                } else {
+                    filePassed += 1;
+                }
+                // FIXME: code duplication. Refactor it and TapTestResultResult
+                Map<String, Object> diagnostic = testResult.getDiagnostic();
+                if (diagnostic != null && !diagnostic.isEmpty()) {
+                    Object duration = diagnostic.get(DURATION_KEY);
+                    if (duration != null) {
+                        fileDuration += Float.parseFloat(duration.toString());
                     }
                 }
             }
+        }
+
+        return new TapResultSummary(filePassed, fileFailed, fileSkipped, fileTodo, realTestSet.getNumberOfBailOuts(),
+                testResults.size(), fileDuration, 1, 0);
+    }
 
-            this.bailOuts += realTestSet.getNumberOfBailOuts();
+    /**
+     * Returns a page of the TAP lines of a file, as shown in the report. Only test results
+     * (the failed ones if {@link #getShowOnlyFailures()}), bail outs and comments (if
+     * {@link #getIncludeCommentDiagnostics()}) are shown. Called from TapResult/lines.jelly.
+     *
+     * @param file index of the file in {@link #getTestSets()}
+     * @param offset number of lines shown before this page, {@code 0} if missing
+     * @param limit maximum number of lines of the page, {@link #DEFAULT_PAGE_SIZE} if missing
+     * @return the page, or {@code null} if there is no such file
+     * @since 2.4.5
+     */
+    @CheckForNull
+    public LinePage getLinePage(String file, String offset, String limit) {
+        final int index = NumberUtils.toInt(file, -1);
+        if (index < 0 || index >= testSets.size()) {
+            return null;
         }
+        final int from = Math.max(0, NumberUtils.toInt(offset, 0));
+        final int size = Math.min(MAX_PAGE_SIZE, Math.max(1, NumberUtils.toInt(limit, DEFAULT_PAGE_SIZE)));
+        final TestSetMap map = testSets.get(index);
+        final List<TapElement> lines = new ArrayList<>(size);
+        int shown = 0;
+        for (TapElement tapLine : map.getTestSet().getTapLines()) {
+            if (!isShown(tapLine)) {
+                continue;
+            }
+            if (shown >= from && lines.size() < size) {
+                lines.add(tapLine);
+            }
+            shown++;
+        }
+        return new LinePage(index, map.getFileName(), lines, from, size, shown);
+    }
+
+    private boolean isShown(TapElement tapLine) {
+        if (tapLine instanceof TestResult) {
+            return !BooleanUtils.isTrue(showOnlyFailures)
+                    || ((TestResult) tapLine).getStatus() != StatusValues.OK;
+        }
+        return tapLine instanceof BailOut
+                || (tapLine instanceof Comment && BooleanUtils.isTrue(includeCommentDiagnostics));
+    }
+
+    /**
+     * A page of the TAP lines of a file shown in the report.
+     *
+     * @since 2.4.5
+     */
+    public static final class LinePage {
+
+        private final int file;
+        private final String fileName;
+        private final List<TapElement> lines;
+        private final int offset;
+        private final int limit;
+        private final int total;
+
+        LinePage(int file, String fileName, List<TapElement> lines, int offset, int limit, int total) {
+            this.file = file;
+            this.fileName = fileName;
+            this.lines = lines;
+            this.offset = offset;
+            this.limit = limit;
+            this.total = total;
+        }
+
+        public int getFile() {
+            return file;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public List<TapElement> getLines() {
+            return lines;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        /**
+         * @return number of lines of the file shown in the report
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        public int getNextOffset() {
+            return offset + lines.size();
+        }
+
+        public int getRemaining() {
+            return Math.max(0, total - getNextOffset());
+        }
+
+        public boolean hasMore() {
+            return getRemaining() > 0;
+        }
+    }
+
+    /**
+     * @return a snapshot of the counters
+     * @since 2.4.5
+     */
+    public TapResultSummary getSummary() {
+        if (summary == null) {
+            tally();
+            summary = new TapResultSummary(this);
+        }
+        return summary;
     }
 
     @Nullable
@@ -305,15 +552,52 @@ public class TapResult implements ModelObject, Serializable {
     }
 
     /**
-     * Called from TapResult/index.jelly
      * @param tapFile location of TAP file
      * @param diagnostic TAP diagnostics
      * @return diagnostic table
+     * @deprecated the views write the rows of {@link #getDiagnosticRows(Map)} instead
      */
+    @Deprecated
     public String createDiagnosticTable(String tapFile, Map<String, Object> diagnostic) {
         return DiagnosticUtil.createDiagnosticTable(tapFile, diagnostic);
     }
 
+    /**
+     * Called from tags/yamlTable.jelly
+     * @param diagnostic TAP diagnostics
+     * @return the rows of the diagnostic table
+     * @since 2.4.5
+     */
+    public DiagnosticRows getDiagnosticRows(Map<String, Object> diagnostic) {
+        return new DiagnosticRows(diagnostic);
+    }
+
+    /**
+     * Called from tags/yaml.jelly
+     * @param diagnostic TAP diagnostics
+     * @return whether the diagnostic is shown collapsed, and loaded when expanded
+     * @since 2.4.5
+     */
+    public boolean isDiagnosticCollapsed(Map<String, Object> diagnostic) {
+        return DiagnosticRows.isCollapsed(diagnostic);
+    }
+
+    /**
+     * Called from TapResult/diagnostic.jelly
+     * @param file index of the file in {@link #getTestSets()}
+     * @param line index of the line in the lines of the file shown, see {@link #getLinePage}
+     * @return the test result of that line, or {@code null} if it is not a test result
+     * @since 2.4.5
+     */
+    @CheckForNull
+    public TestResult getLineTestResult(String file, String line) {
+        final LinePage page = getLinePage(file, line, "1");
+        if (page == null || page.getLines().isEmpty() || !(page.getLines().get(0) instanceof TestResult)) {
+            return null;
+        }
+        return (TestResult) page.getLines().get(0);
+    }
+
     /**
      * @param tapResult the tap result object
      * @return {@code true} if the object is not null and an instance of {@link TestResult}
@@ -356,20 +640,138 @@ public class TapResult implements ModelObject, Serializable {
         return getName();
     }
 
+    /**
+     * Shows the contents of a TAP file of the build, decompressing it if needed.
+     *
+     * @param request request, with the file name relative to the TAP directory in {@code f}
+     * @param response response
+     * @throws IOException if the file cannot be read
+     * @since 2.4.5
+     */
+    public void doContents(StaplerRequest request, StaplerResponse response) throws IOException {
+        final File file = getTapFile(request.getParameter("f"));
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setContentType("text/plain;charset=UTF-8");
+        try (InputStream is = CompressionUtil.open(file)) {
+            IOUtils.copy(is, response.getOutputStream());
+        }
+    }
+
+    /**
+     * Compares these results with those of the last earlier build with TAP results. Served at
+     * {@code tapResults/diff} of the build, and as JSON at {@code tapResults/diff/api/json}.
+     *
+     * @return the differences with the results of the previous build with TAP results
+     * @since 2.4.5
+     */
+    public TapResultDiff getDiff() {
+        final Run<?, ?> previousBuild = getPreviousBuildWithResults();
+        final int previousNumber = previousBuild != null ? previousBuild.getNumber() : 0;
+        TapResultDiff cached = diff;
+        if (cached == null || cached.getPreviousBuildNumber() != previousNumber) {
+            cached = previousBuild == null ? new TapResultDiff(build, this, null, null)
+                    : new TapResultDiff(build, this, previousBuild,
+                            previousBuild.getAction(TapBuildAction.class).getResult());
+            diff = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Finds the last build before this one with TAP results in the {@link TapTrendIndex}, so
+     * the builds without results in between are not loaded.
+     *
+     * @return the build, or {@code null} if there is none
+     */
+    @CheckForNull
+    private Run<?, ?> getPreviousBuildWithResults() {
+        if (build == null || build.getAction(TapBuildAction.class) == null) {
+            return null;
+        }
+        for (TapTrendIndex.Entry entry : TapTrendIndex.getEntries(build.getParent())) {
+            if (entry.getNumber() >= build.getNumber()) {
+                continue;
+            }
+            // the index may still list builds that were deleted since
+            final Run<?, ?> previous = build.getParent().getBuildByNumber(entry.getNumber());
+            if (previous != null && previous.getAction(TapBuildAction.class) != null) {
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a page of the tests, filtered, as JSON. Served at {@code tapResults/tests} of the
+     * build, see {@link TapTestQuery#fromRequest(StaplerRequest)} for the parameters.
+     *
+     * @param request request
+     * @param response response
+     * @throws IOException if the response cannot be written
+     * @since 2.4.5
+     */
+    public void doTests(StaplerRequest request, StaplerResponse response) throws IOException {
+        final TapTestQuery query;
+        try {
+            query = TapTestQuery.fromRequest(request);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        response.setContentType("application/json;charset=UTF-8");
+        query.write(this, response.getWriter());
+    }
+
+    /**
+     * @param fileName file name, relative to the TAP directory of the build
+     * @return the file, or {@code null} if it is not a file of the TAP directory
+     */
+    @CheckForNull
+    private File getTapFile(String fileName) throws IOException {
+        if (build == null || StringUtils.isBlank(fileName)) {
+            return null;
+        }
+        final File tapDir = new File(build.getRootDir(), Constants.TAP_DIR_NAME).getCanonicalFile();
+        final File file = new File(tapDir, fileName).getCanonicalFile();
+        if (!file.toPath().startsWith(tapDir.toPath()) || !file.isFile()) {
+            return null;
+        }
+        return file;
+    }
+
     public void doDownloadAttachment(StaplerRequest request, StaplerResponse response) {
         final String f = request.getParameter("f");
         final String key = request.getParameter("key");
         try {
-            final ServletOutputStream sos = response.getOutputStream();
-
             if (build == null) {
-                sos.println("No build located in Jenkins. Cannot download attachment.");
+                response.getOutputStream().println("No build located in Jenkins. Cannot download attachment.");
+                return;
+            }
+            final TapAttachmentStore.Stored stored = TapAttachmentStore.find(build, f, key);
+            if (stored != null) {
+                response.setContentType("application/force-download");
+                response.setContentLengthLong(stored.getSize());
+                response.setHeader("Content-Transfer-Encoding", "binary");
+                response.setHeader("Content-Disposition",
+                        "attachment; filename=\"" + stored.getFileName() + "\"");
+                stored.writeTo(response.getOutputStream());
+            } else if (TapAttachmentStore.isIndexed(build)) {
+                // every attachment of the build was extracted when publishing
+                response.sendError(HttpServletResponse.SC_NOT_FOUND, "Couldn't locate attachment in YAMLish: " + f);
             } else {
+                // builds recorded before the attachments were extracted when publishing
+                final ServletOutputStream sos = response.getOutputStream();
                 FilePath parent = new FilePath(new File(build.getRootDir(), Constants.TAP_DIR_NAME));
                 FilePath tapDir = parent.child(TestObject.safe(f));
 
                 if (tapDir.exists()) {
-                    String tapStream = tapDir.readToString();
+                    String tapStream;
+                    try (Reader reader = CompressionUtil.openReader(new File(tapDir.getRemote()))) {
+                        tapStream = IOUtils.toString(reader);
+                    }
                     TapConsumer consumer = TapConsumerFactory.makeTap13YamlConsumer();
                     TestSet ts = consumer.load(tapStream);
 
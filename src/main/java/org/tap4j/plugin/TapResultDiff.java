@@ -0,0 +1,408 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import hudson.model.Api;
+import hudson.model.Run;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.tap4j.model.Plan;
+import org.tap4j.model.TestResult;
+import org.tap4j.plugin.model.StreamedTestSetMap;
+import org.tap4j.plugin.model.TestSetMap;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Differences between the TAP results of a build and those of the previous build,
+ * the last earlier build with TAP results: the tests that started failing, were
+ * fixed, are still failing, were added or were removed.
+ *
+ * <p>Tests are matched by the same identity as the {@link TapTestHistory}, their
+ * file name and description, hashed to a {@code long}. The tests of each build are
+ * sorted by hash and then merged, so only the hashes are compared and neither
+ * report is rendered. The tests of the top level of each file are compared.</p>
+ *
+ * <p>Files parsed in streaming mode only kept their failed tests, so a test found in
+ * only one of the builds, in a file streamed in the other, may have passed there.
+ * These tests are not compared, instead of being reported as added or removed.</p>
+ *
+ * <p>Each list has at most {@link #MAX_TESTS} tests, in the order of the report.
+ * The counts are always complete. Only the first tests are kept while comparing,
+ * with their file name, number and description, so the diff does not hold the test
+ * sets of either build.</p>
+ *
+ * @since 2.4.5
+ */
+@ExportedBean(defaultVisibility = 2)
+public class TapResultDiff {
+
+    /**
+     * Maximum number of tests of each list.
+     */
+    public static final int MAX_TESTS = TapTestQuery.MAX_LIMIT;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Run<?, ?> build;
+    private final Run<?, ?> previousBuild;
+    private final Group newFailures = new Group();
+    private final Group fixed = new Group();
+    private final Group stillFailing = new Group();
+    private final Group added = new Group();
+    private final Group removed = new Group();
+    private final Group notCompared = new Group();
+    private int unchanged;
+
+    /**
+     * @param build build of the results
+     * @param result results of the build
+     * @param previousBuild previous build, {@code null} if there is none with TAP results
+     * @param previousResult results of the previous build, {@code null} if there are none
+     */
+    public TapResultDiff(Run<?, ?> build, TapResult result, @CheckForNull Run<?, ?> previousBuild,
+            @CheckForNull TapResult previousResult) {
+        this.build = build;
+        this.previousBuild = previousResult != null ? previousBuild : null;
+        final Test[] current = collect(result);
+        final Test[] previous = previousResult != null ? collect(previousResult) : new Test[0];
+        final Set<String> streamed = getStreamedFiles(result);
+        final Set<String> previousStreamed = previousResult != null
+                ? getStreamedFiles(previousResult) : Collections.<String>emptySet();
+
+        int i = 0;
+        int j = 0;
+        while (i < current.length || j < previous.length) {
+            final int order;
+            if (i == current.length) {
+                order = 1;
+            } else if (j == previous.length) {
+                order = -1;
+            } else {
+                order = Long.compare(current[i].hash, previous[j].hash);
+            }
+            if (order < 0) {
+                final Test test = current[i++];
+                if (previousStreamed.contains(test.getFile())) {
+                    notCompared.add(test);
+                } else {
+                    added.add(test);
+                }
+            } else if (order > 0) {
+                final Test before = previous[j++];
+                if (streamed.contains(before.getFile())) {
+                    notCompared.add(before.asPrevious());
+                } else {
+                    removed.add(before);
+                }
+            } else {
+                final Test test = current[i++];
+                final Test before = previous[j++];
+                test.previousStatus = before.status;
+                if (test.isFailed() && before.isFailed()) {
+                    stillFailing.add(test);
+                } else if (test.isFailed()) {
+                    newFailures.add(test);
+                } else if (before.isFailed()) {
+                    fixed.add(test);
+                } else {
+                    unchanged++;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the tests of the result, sorted by hash, and by position for equal hashes
+     */
+    private static Test[] collect(TapResult result) {
+        final List<Test> tests = new ArrayList<>(result.getTotal());
+        final List<TestSetMap> testSets = result.getTestSets();
+        for (int set = 0; set < testSets.size(); set++) {
+            final TestSetMap testSet = testSets.get(set);
+            final Plan plan = testSet.getTestSet().getPlan();
+            final boolean planSkipped = plan != null && plan.isSkip();
+            final long fileHash = hash(FNV_OFFSET_BASIS, testSet.getFileName() + '\n');
+            final List<TestResult> testResults = testSet.getTestSet().getTestResults();
+            for (int position = 0; position < testResults.size(); position++) {
+                final TestResult testResult = testResults.get(position);
+                tests.add(new Test(hash(fileHash, TapTestHistory.getDescriptionKey(testResult)), set, position,
+                        testSet.getFileName(), testResult,
+                        TapTestQuery.getStatus(testResult, planSkipped, result.getTodoIsFailure())));
+            }
+        }
+        final Test[] sorted = tests.toArray(new Test[0]);
+        // stable, so tests with the same identity keep the order of the report
+        Arrays.sort(sorted, (a, b) -> Long.compare(a.hash, b.hash));
+        return sorted;
+    }
+
+    private static Set<String> getStreamedFiles(TapResult result) {
+        final Set<String> files = new HashSet<>();
+        for (TestSetMap testSet : result.getTestSets()) {
+            if (testSet instanceof StreamedTestSetMap) {
+                files.add(testSet.getFileName());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the characters of a string.
+     */
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    public Run<?, ?> getBuild() {
+        return build;
+    }
+
+    /**
+     * @return the build compared with, {@code null} if there is none with TAP results
+     */
+    @CheckForNull
+    public Run<?, ?> getPreviousBuild() {
+        return previousBuild;
+    }
+
+    /**
+     * @return number of the build compared with, {@code 0} if there is none
+     */
+    @Exported
+    public int getPreviousBuildNumber() {
+        return previousBuild != null ? previousBuild.getNumber() : 0;
+    }
+
+    @Exported
+    public Group getNewFailures() {
+        return newFailures.sorted();
+    }
+
+    @Exported
+    public Group getFixed() {
+        return fixed.sorted();
+    }
+
+    @Exported
+    public Group getStillFailing() {
+        return stillFailing.sorted();
+    }
+
+    @Exported
+    public Group getAdded() {
+        return added.sorted();
+    }
+
+    @Exported
+    public Group getRemoved() {
+        return removed.sorted();
+    }
+
+    /**
+     * @return the tests found in only one of the builds, in a file parsed in streaming
+     *         mode in the other build, which may have passed there. The tests of this
+     *         build come first, then those of the previous build
+     */
+    @Exported
+    public Group getNotCompared() {
+        return notCompared.sorted();
+    }
+
+    /**
+     * @return number of tests in both builds, not failed in either
+     */
+    @Exported
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * Tests of one of the kinds of difference.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class Group {
+
+        /**
+         * The first tests in the order of the report, the last one at the head.
+         */
+        private final PriorityQueue<Test> first = new PriorityQueue<>(Collections.reverseOrder());
+        private List<Test> tests;
+        private int count;
+
+        /**
+         * Counts a test, and keeps it if it is one of the first {@link #MAX_TESTS} in the
+         * order of the report. The tests come in the order of the hashes.
+         */
+        private void add(Test test) {
+            count++;
+            if (first.size() < MAX_TESTS) {
+                first.add(test);
+            } else if (test.compareTo(first.peek()) < 0) {
+                first.poll();
+                first.add(test);
+            }
+        }
+
+        /**
+         * Sorts the kept tests in the order of the report.
+         */
+        private synchronized Group sorted() {
+            if (tests == null) {
+                final List<Test> sorted = new ArrayList<>(first);
+                Collections.sort(sorted);
+                tests = sorted;
+                first.clear();
+            }
+            return this;
+        }
+
+        /**
+         * @return number of tests, including those not in {@link #getTests()}
+         */
+        @Exported
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return the first tests, in the order of the report
+         */
+        @Exported
+        public List<Test> getTests() {
+            return Collections.unmodifiableList(sorted().tests);
+        }
+
+        /**
+         * @return whether there are more tests than those in {@link #getTests()}
+         */
+        public boolean isTruncated() {
+            return count > sorted().tests.size();
+        }
+    }
+
+    /**
+     * A test of one of the builds.
+     */
+    @ExportedBean(defaultVisibility = 3)
+    public static final class Test implements Comparable<Test> {
+
+        private final long hash;
+        private final int set;
+        private final int position;
+        private final String file;
+        private final Integer number;
+        private final String description;
+        private final String status;
+        private String previousStatus;
+        private boolean previous;
+
+        private Test(long hash, int set, int position, String file, TestResult testResult, String status) {
+            this(hash, set, position, file, testResult.getTestNumber(), testResult.getDescription(), status);
+        }
+
+        private Test(long hash, int set, int position, String file, Integer number, String description,
+                String status) {
+            this.hash = hash;
+            this.set = set;
+            this.position = position;
+            this.file = file;
+            this.number = number;
+            this.description = description;
+            this.status = status;
+        }
+
+        private boolean isFailed() {
+            return TapTestQuery.FAILED.equals(status);
+        }
+
+        /**
+         * @return this test of the previous build, with its status as the previous status
+         */
+        private Test asPrevious() {
+            final Test test = new Test(hash, set, position, file, number, description, null);
+            test.previousStatus = status;
+            test.previous = true;
+            return test;
+        }
+
+        @Exported
+        public String getFile() {
+            return file;
+        }
+
+        @Exported
+        public Integer getNumber() {
+            return number;
+        }
+
+        @Exported
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * @return status of the test, in its build, as in {@link TapTestQuery}, {@code null}
+         *         for a test of the previous build that was not compared
+         */
+        @Exported
+        public String getStatus() {
+            return status;
+        }
+
+        /**
+         * @return status of the test in the previous build, {@code null} if it was added
+         *         or removed
+         */
+        @Exported
+        public String getPreviousStatus() {
+            return previousStatus;
+        }
+
+        @Override
+        public int compareTo(Test o) {
+            if (previous != o.previous) {
+                return previous ? 1 : -1;
+            }
+            return set != o.set ? Integer.compare(set, o.set) : Integer.compare(position, o.position);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.XmlFile;
+import hudson.model.Run;
+import hudson.util.XStream2;
+
+/**
+ * A {@link TapResult} stored in a file of the build directory, instead of the build
+ * record. The result is loaded only when required, and kept in memory through a
+ * {@link SoftReference}, with its transient caches, until the memory is needed.
+ *
+ * @since 2.4.5
+ */
+public class TapResultFile {
+
+    private static final Logger LOGGER = Logger.getLogger(TapResultFile.class.getName());
+
+    private static final XStream2 XSTREAM = new XStream2();
+
+    private final Run<?, ?> run;
+    private final String fileName;
+    private Reference<TapResult> reference;
+
+    /**
+     * @param run build that owns the file
+     * @param fileName name of the file, in the build directory
+     */
+    public TapResultFile(Run<?, ?> run, String fileName) {
+        this.run = run;
+        this.fileName = fileName;
+    }
+
+    public XmlFile getXmlFile() {
+        return new XmlFile(XSTREAM, new File(run.getRootDir(), fileName));
+    }
+
+    public boolean exists() {
+        return getXmlFile().exists();
+    }
+
+    /**
+     * @return the stored result, or an empty result if the file is missing or could not be read
+     */
+    public synchronized TapResult get() {
+        TapResult result = reference != null ? reference.get() : null;
+        if (result == null) {
+            result = load();
+            reference = new SoftReference<>(result);
+        }
+        return result;
+    }
+
+    /**
+     * @param result the result to be stored
+     * @throws IOException if the file could not be written
+     */
+    public synchronized void set(TapResult result) throws IOException {
+        getXmlFile().write(result);
+        reference = new SoftReference<>(result);
+    }
+
+    private TapResult load() {
+        final XmlFile xmlFile = getXmlFile();
+        TapResult result = null;
+        if (xmlFile.exists()) {
+            try {
+                result = (TapResult) xmlFile.read();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to load TAP results from " + xmlFile, e);
+            }
+        }
+        if (result == null) {
+            result = new TapResult("TAP Test Results", run, Collections.emptyList(), Boolean.TRUE, Boolean.TRUE, Boolean.FALSE);
+        }
+        result.setOwner(run);
+        return result;
+    }
+
+}
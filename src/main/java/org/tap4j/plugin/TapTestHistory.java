@@ -0,0 +1,371 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.Util;
+import hudson.model.Job;
+import hudson.model.Run;
+import org.apache.commons.lang.StringUtils;
+import org.tap4j.model.TestResult;
+import org.tap4j.plugin.model.TestSetMap;
+
+/**
+ * Per-job index with the failure history of each test, used for the age of the
+ * failed tests, and the build where they started failing, without loading the
+ * previous builds.
+ *
+ * <p>Tests are identified by their file name and a hash of their description, or
+ * of their number when they have no description. When results are published, the
+ * failed tests of the build continue the streak they had in the previous build
+ * that published results, or start a new one. The index is a text file in the job
+ * directory, with the failed tests of the last two recorded builds, one per line:
+ * {@code build,failedSince,streak,test}. The failed tests of each build are also
+ * written to a file in its directory, read by the test results of the build.</p>
+ *
+ * <p>Builds recorded before the index existed have no history, and streaks start
+ * with the first build recorded. A build that publishes results after a newer
+ * build did starts new streaks, and does not change the index.</p>
+ *
+ * <p>Each job has its own lock for its index, as in {@link TapTrendIndex}. The
+ * files of the builds are replaced at once, so they are read without a lock.</p>
+ *
+ * @since 2.4.5
+ */
+public final class TapTestHistory {
+
+    private static final Logger LOGGER = Logger.getLogger(TapTestHistory.class.getName());
+
+    public static final String FILE_NAME = "tapHistory.csv";
+
+    private static final String HEADER = "#";
+
+    /**
+     * Lock of the index of each job.
+     */
+    private static final Map<Job<?, ?>, Object> LOCKS = new WeakHashMap<>();
+
+    /**
+     * Failed tests of the builds, by test identity, reused while the file does not change.
+     */
+    private static final Map<Run<?, ?>, Snapshot> SNAPSHOTS = new WeakHashMap<>();
+
+    private TapTestHistory() {
+        super();
+    }
+
+    /**
+     * Records the failed tests of a build. Called every time results are published,
+     * with all the results of the build.
+     *
+     * @param run build
+     * @param result all the TAP results of the build
+     */
+    public static void record(Run<?, ?> run, TapResult result) {
+        final Job<?, ?> job = run.getParent();
+        final int number = run.getNumber();
+        synchronized (getLock(job)) {
+            try {
+                final File file = getFile(job);
+                final Index index = file.exists() ? Index.read(file) : new Index(0, 0);
+                final int base;
+                if (index.number == number) {
+                    // published again in the same build
+                    base = index.base;
+                } else if (index.number < number) {
+                    base = index.number;
+                } else {
+                    base = 0;
+                }
+                final Map<String, Entry> previous = base > 0 ? index.getFailures(base) : Collections.emptyMap();
+
+                final Map<String, Entry> failures = new LinkedHashMap<>();
+                final List<TestSetMap> testSets = result.getTestSets();
+                final int[][] failureIndex = result.getFailureIndex();
+                for (int i = 0; i < testSets.size(); i++) {
+                    final TestSetMap testSet = testSets.get(i);
+                    final List<TestResult> testResults = testSet.getTestSet().getTestResults();
+                    for (int position : failureIndex[i]) {
+                        final String test = getTestId(testSet, testResults.get(position));
+                        final Entry last = previous.get(test);
+                        failures.putIfAbsent(test, last != null
+                                ? new Entry(number, last.getFailedSince(), last.getStreak() + 1, test)
+                                : new Entry(number, number, 1, test));
+                    }
+                }
+
+                if (index.number <= number) {
+                    final Index updated = new Index(number, base);
+                    updated.entries.put(base, previous);
+                    updated.entries.put(number, failures);
+                    updated.write(file);
+                } else {
+                    LOGGER.log(Level.FINE, "{0} published TAP results after a newer build, not updating the test history",
+                            run);
+                }
+                write(new File(run.getRootDir(), FILE_NAME), null, failures.values());
+                synchronized (SNAPSHOTS) {
+                    SNAPSHOTS.remove(run);
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to update the TAP test history of " + job.getFullName(), e);
+            }
+        }
+    }
+
+    /**
+     * @param run build
+     * @param testSet test set of the build
+     * @param testResult failed test of the test set
+     * @return the failure history of the test in the build, or {@code null} if it did
+     *         not fail, or if the build has no history
+     */
+    public static Entry getEntry(Run<?, ?> run, TestSetMap testSet, TestResult testResult) {
+        return getFailures(run).get(getTestId(testSet, testResult));
+    }
+
+    /**
+     * @param testSet test set
+     * @param testResult test of the test set
+     * @return identity of the test, the same in every build while its file name and
+     *         description do not change
+     */
+    public static String getTestId(TestSetMap testSet, TestResult testResult) {
+        return testSet.getFileName() + "#" + Util.getDigestOf(getDescriptionKey(testResult));
+    }
+
+    /**
+     * @param testResult test
+     * @return the part of the identity of the test that comes from the test itself
+     */
+    static String getDescriptionKey(TestResult testResult) {
+        return StringUtils.isNotBlank(testResult.getDescription())
+                ? testResult.getDescription().trim()
+                : "#" + testResult.getTestNumber();
+    }
+
+    private static Map<String, Entry> getFailures(Run<?, ?> run) {
+        final File file = new File(run.getRootDir(), FILE_NAME);
+        // taken before reading, so that a file replaced meanwhile is read again
+        final long length = file.length();
+        final long lastModified = file.lastModified();
+        if (lastModified == 0) {
+            return Collections.emptyMap();
+        }
+        Snapshot snapshot;
+        synchronized (SNAPSHOTS) {
+            snapshot = SNAPSHOTS.get(run);
+        }
+        if (snapshot != null && snapshot.length == length && snapshot.lastModified == lastModified) {
+            return snapshot.failures;
+        }
+        try {
+            final Map<String, Entry> failures = Index.read(file).getFailures(run.getNumber());
+            synchronized (SNAPSHOTS) {
+                SNAPSHOTS.put(run, new Snapshot(length, lastModified, failures));
+            }
+            return failures;
+        } catch (NoSuchFileException e) {
+            return Collections.emptyMap();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read the TAP test history of " + run, e);
+            return Collections.emptyMap();
+        }
+    }
+
+    private static File getFile(Job<?, ?> job) {
+        return new File(job.getRootDir(), FILE_NAME);
+    }
+
+    private static Object getLock(Job<?, ?> job) {
+        synchronized (LOCKS) {
+            return LOCKS.computeIfAbsent(job, k -> new Object());
+        }
+    }
+
+    private static void write(File file, String header, Collection<Entry> entries) throws IOException {
+        // replaced at once, so that readers never see half of it
+        final File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            if (header != null) {
+                writer.write(header);
+                writer.write('\n');
+            }
+            for (Entry entry : entries) {
+                writer.write(entry.toLine());
+                writer.write('\n');
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Failed tests of the last builds, by build number.
+     */
+    private static final class Index {
+        private final int number;
+        private final int base;
+        private final Map<Integer, Map<String, Entry>> entries = new HashMap<>();
+
+        private Index(int number, int base) {
+            this.number = number;
+            this.base = base;
+        }
+
+        private Map<String, Entry> getFailures(int build) {
+            return entries.getOrDefault(build, Collections.emptyMap());
+        }
+
+        private void write(File file) throws IOException {
+            final List<Entry> all = new ArrayList<>();
+            for (Map<String, Entry> failures : entries.values()) {
+                all.addAll(failures.values());
+            }
+            TapTestHistory.write(file, HEADER + number + "," + base, all);
+        }
+
+        private static Index read(File file) throws IOException {
+            Index index = null;
+            final Map<Integer, Map<String, Entry>> entries = new HashMap<>();
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(HEADER)) {
+                        final String[] fields = line.substring(HEADER.length()).split(",");
+                        try {
+                            index = new Index(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]));
+                        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                            // corrupted header, the streaks start again
+                        }
+                        continue;
+                    }
+                    final Entry entry = Entry.fromLine(line);
+                    if (entry != null) {
+                        entries.computeIfAbsent(entry.getBuild(), k -> new LinkedHashMap<>()).put(entry.getTest(), entry);
+                    }
+                }
+            }
+            if (index == null) {
+                index = new Index(0, 0);
+            }
+            index.entries.putAll(entries);
+            return index;
+        }
+    }
+
+    private static final class Snapshot {
+        private final long length;
+        private final long lastModified;
+        private final Map<String, Entry> failures;
+
+        private Snapshot(long length, long lastModified, Map<String, Entry> failures) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.failures = failures;
+        }
+    }
+
+    /**
+     * Failure history of a test in a build.
+     */
+    public static final class Entry {
+
+        private final int build;
+        private final int failedSince;
+        private final int streak;
+        private final String test;
+
+        public Entry(int build, int failedSince, int streak, String test) {
+            this.build = build;
+            this.failedSince = failedSince;
+            this.streak = streak;
+            this.test = test;
+        }
+
+        /**
+         * @return number of the build where the test failed
+         */
+        public int getBuild() {
+            return build;
+        }
+
+        /**
+         * @return number of the first build of the current streak of failures
+         */
+        public int getFailedSince() {
+            return failedSince;
+        }
+
+        /**
+         * @return number of consecutive builds, publishing TAP results, where the test failed
+         */
+        public int getStreak() {
+            return streak;
+        }
+
+        /**
+         * @return identity of the test, see {@link TapTestHistory#getTestId(TestSetMap, TestResult)}
+         */
+        public String getTest() {
+            return test;
+        }
+
+        String toLine() {
+            return build + "," + failedSince + "," + streak + "," + test;
+        }
+
+        static Entry fromLine(String line) {
+            final String[] fields = line.split(",", 4);
+            if (fields.length != 4) {
+                return null;
+            }
+            try {
+                return new Entry(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                        fields[3]);
+            } catch (NumberFormatException e) {
+                // incomplete line, e.g. written while the controller was shutting down
+                return null;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,308 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.export.DataWriter;
+import org.kohsuke.stapler.export.ExportConfig;
+import org.kohsuke.stapler.export.Flavor;
+import org.tap4j.model.Directive;
+import org.tap4j.model.Plan;
+import org.tap4j.model.TestResult;
+import org.tap4j.plugin.model.TestSetMap;
+import org.tap4j.plugin.util.Util;
+import org.tap4j.util.DirectiveValues;
+
+/**
+ * A page of the tests of a {@link TapResult}, filtered, written as JSON. The tests
+ * are those of the top level of each file, in order. A page ends with the cursor
+ * of the next one, {@code null} after the last page.
+ * <p>
+ * The JSON is written while the tests are walked, so large results are never held
+ * in memory as a whole. Files parsed in streaming mode only kept their failed tests.
+ *
+ * @since 2.4.5
+ */
+public class TapTestQuery {
+
+    /**
+     * Number of tests per page, unless requested otherwise.
+     */
+    public static final int DEFAULT_LIMIT = 100;
+
+    public static final int MAX_LIMIT = 1000;
+
+    static final String PASSED = "passed";
+    static final String FAILED = "failed";
+    static final String SKIPPED = "skipped";
+    static final String TODO = "todo";
+
+    private static final Set<String> STATUSES = new HashSet<>(Arrays.asList(PASSED, FAILED, SKIPPED, TODO));
+    private static final Set<String> DIRECTIVES = new HashSet<>(Arrays.asList("skip", "todo", "none"));
+    private static final String DURATION_KEY = "duration_ms";
+
+    private final Set<String> statuses;
+    private final String directive;
+    private final String fileGlob;
+    private final String description;
+    private final float minDuration;
+    private final int limit;
+    private final int startFile;
+    private final int startTest;
+
+    /**
+     * @param statuses statuses of the tests returned, all if empty
+     * @param directive {@code skip}, {@code todo} or {@code none}, {@code null} for any
+     * @param fileGlob Ant pattern of the files of the tests returned, {@code null} for any
+     * @param description text contained in the description of the tests returned, ignoring
+     *                    the case, {@code null} for any
+     * @param minDuration minimum duration in milliseconds of the tests returned, tests without
+     *                    duration are excluded. Negative for any
+     * @param limit maximum number of tests of the page
+     * @param cursor cursor of the page, {@code null} for the first page
+     * @throws IllegalArgumentException if a parameter is not valid
+     */
+    public TapTestQuery(Set<String> statuses, String directive, String fileGlob, String description,
+            float minDuration, int limit, String cursor) {
+        for (String status : statuses) {
+            if (!STATUSES.contains(status)) {
+                throw new IllegalArgumentException("Invalid status '" + status + "', expected one of " + STATUSES);
+            }
+        }
+        if (directive != null && !DIRECTIVES.contains(directive)) {
+            throw new IllegalArgumentException("Invalid directive '" + directive + "', expected one of " + DIRECTIVES);
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Invalid limit " + limit + ", expected 1 to " + MAX_LIMIT);
+        }
+        this.statuses = statuses;
+        this.directive = directive;
+        this.fileGlob = fileGlob;
+        this.description = description == null ? null : description.toLowerCase(Locale.ROOT);
+        this.minDuration = minDuration;
+        this.limit = limit;
+        if (cursor == null) {
+            this.startFile = 0;
+            this.startTest = 0;
+        } else {
+            final String[] position = cursor.split("-", 2);
+            try {
+                this.startFile = Integer.parseInt(position[0]);
+                this.startTest = position.length == 2 ? Integer.parseInt(position[1]) : -1;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor '" + cursor + "'", e);
+            }
+            // cursors are written by this class, as "<file index>-<test index>"
+            if (startFile < 0 || startTest < 0) {
+                throw new IllegalArgumentException("Invalid cursor '" + cursor + "'");
+            }
+        }
+    }
+
+    /**
+     * @param request request with the parameters {@code status} (comma separated), {@code directive},
+     *                {@code file}, {@code description}, {@code minDuration}, {@code limit} and {@code cursor}
+     * @return the query
+     * @throws IllegalArgumentException if a parameter is not valid
+     */
+    public static TapTestQuery fromRequest(StaplerRequest request) {
+        final Set<String> statuses = new HashSet<>();
+        for (String status : StringUtils.split(StringUtils.defaultString(request.getParameter("status")), ',')) {
+            statuses.add(status.trim().toLowerCase(Locale.ROOT));
+        }
+        final String directive = StringUtils.lowerCase(StringUtils.trimToNull(request.getParameter("directive")),
+                Locale.ROOT);
+        return new TapTestQuery(statuses, directive,
+                StringUtils.trimToNull(request.getParameter("file")),
+                StringUtils.trimToNull(request.getParameter("description")),
+                parseFloat(request.getParameter("minDuration")),
+                parseLimit(request.getParameter("limit")),
+                StringUtils.trimToNull(request.getParameter("cursor")));
+    }
+
+    private static float parseFloat(String minDuration) {
+        if (StringUtils.isBlank(minDuration)) {
+            return -1;
+        }
+        try {
+            return Float.parseFloat(minDuration.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid minDuration '" + minDuration + "'", e);
+        }
+    }
+
+    private static int parseLimit(String limit) {
+        if (StringUtils.isBlank(limit)) {
+            return DEFAULT_LIMIT;
+        }
+        try {
+            return Integer.parseInt(limit.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid limit '" + limit + "'", e);
+        }
+    }
+
+    /**
+     * Writes the page.
+     *
+     * @param result the TAP result
+     * @param writer where the JSON is written
+     * @throws IOException if it cannot be written
+     */
+    public void write(TapResult result, Writer writer) throws IOException {
+        final DataWriter out = Flavor.JSON.createDataWriter(null, writer, new ExportConfig());
+        final List<TestSetMap> testSets = result.getTestSets();
+        String next = null;
+        int count = 0;
+
+        out.startObject();
+        out.name("tests");
+        out.startArray();
+        files:
+        for (int f = startFile; f < testSets.size(); f++) {
+            final TestSetMap map = testSets.get(f);
+            if (fileGlob != null && !SelectorUtils.matchPath(fileGlob, map.getFileName())) {
+                continue;
+            }
+            final Plan plan = map.getTestSet().getPlan();
+            final boolean planSkipped = plan != null && plan.isSkip();
+            final List<TestResult> testResults = map.getTestSet().getTestResults();
+            for (int t = f == startFile ? startTest : 0; t < testResults.size(); t++) {
+                if (count == limit) {
+                    next = f + "-" + t;
+                    break files;
+                }
+                final TestResult testResult = testResults.get(t);
+                final String status = getStatus(testResult, planSkipped, result.getTodoIsFailure());
+                final Float duration = getDuration(testResult);
+                if (matches(map, testResult, status, duration)) {
+                    writeTest(out, map, testResult, status, duration);
+                    count++;
+                }
+            }
+        }
+        out.endArray();
+        out.name("next");
+        if (next == null) {
+            out.valueNull();
+        } else {
+            out.value(next);
+        }
+        out.endObject();
+        writer.flush();
+    }
+
+    private boolean matches(TestSetMap map, TestResult testResult, String status, Float duration) {
+        if (!statuses.isEmpty() && !statuses.contains(status)) {
+            return false;
+        }
+        if (directive != null && !directive.equals(getDirective(testResult))) {
+            return false;
+        }
+        if (description != null && (testResult.getDescription() == null
+                || !testResult.getDescription().toLowerCase(Locale.ROOT).contains(description))) {
+            return false;
+        }
+        return minDuration < 0 || (duration != null && duration >= minDuration);
+    }
+
+    private static void writeTest(DataWriter out, TestSetMap map, TestResult testResult, String status,
+            Float duration) throws IOException {
+        out.startObject();
+        out.name("file");
+        out.value(map.getFileName());
+        out.name("number");
+        if (testResult.getTestNumber() == null) {
+            out.valueNull();
+        } else {
+            out.valuePrimitive(testResult.getTestNumber());
+        }
+        out.name("description");
+        writeString(out, testResult.getDescription());
+        out.name("status");
+        out.value(status);
+        out.name("directive");
+        writeString(out, "none".equals(getDirective(testResult)) ? null : getDirective(testResult));
+        out.name("reason");
+        writeString(out, testResult.getDirective() != null ? testResult.getDirective().getReason() : null);
+        out.name("duration");
+        if (duration == null) {
+            out.valueNull();
+        } else {
+            out.valuePrimitive(duration);
+        }
+        out.endObject();
+    }
+
+    private static void writeString(DataWriter out, String value) throws IOException {
+        if (value == null) {
+            out.valueNull();
+        } else {
+            out.value(value);
+        }
+    }
+
+    static String getStatus(TestResult testResult, boolean planSkipped, Boolean todoIsFailure) {
+        if (planSkipped || Util.isSkipped(testResult)) {
+            return SKIPPED;
+        } else if (Util.isFailure(testResult, todoIsFailure)) {
+            return FAILED;
+        } else if (Util.isTodo(testResult)) {
+            return TODO;
+        }
+        return PASSED;
+    }
+
+    private static String getDirective(TestResult testResult) {
+        final Directive directive = testResult.getDirective();
+        if (directive == null) {
+            return "none";
+        }
+        return directive.getDirectiveValue() == DirectiveValues.SKIP ? "skip" : "todo";
+    }
+
+    private static Float getDuration(TestResult testResult) {
+        final Map<String, Object> diagnostic = testResult.getDiagnostic();
+        final Object duration = diagnostic != null ? diagnostic.get(DURATION_KEY) : null;
+        if (duration == null) {
+            return null;
+        }
+        try {
+            return Float.parseFloat(duration.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
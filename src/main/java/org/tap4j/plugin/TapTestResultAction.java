@@ -36,10 +36,16 @@ import jenkins.tasks.SimpleBuildStep;
 import jenkins.util.NonLocalizable;
 import org.kohsuke.stapler.StaplerProxy;
 import org.kohsuke.stapler.export.Exported;
+import org.tap4j.plugin.model.TapResultSummary;
 import org.tap4j.plugin.model.TapStreamResult;
 
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 
 /**
@@ -48,12 +54,41 @@ import java.util.Collections;
 public class TapTestResultAction extends AbstractTestResultAction<TapTestResultAction>
         implements StaplerProxy, SimpleBuildStep.LastBuildAction, HealthReportingAction, RunAction2 {
 
+    private static final Logger LOGGER = Logger.getLogger(TapTestResultAction.class.getName());
+
+    /**
+     * Name of the file, in the build directory, with the TAP results.
+     * @since 2.4.5
+     */
+    public static final String RESULT_FILE_NAME = "tapResult.xml";
+
+    /**
+     * Results of builds recorded before 2.4.5, kept in the build record. Moved
+     * to {@link #RESULT_FILE_NAME} the next time the build is saved.
+     */
+    @Deprecated
     private TapResult tapResult;
 
+    private TapResultSummary summary;
+
+    private transient TapResultFile resultFile;
+
+    /**
+     * The stream result, with its children, shared by the requests to this action
+     * while there is memory for it.
+     */
+    private transient Reference<TapStreamResult> streamResult;
+
+    /**
+     * Results of a TAP stream still being written, shown with the stored results
+     * while the build runs. Never stored.
+     */
+    private transient volatile TapResult liveResult;
+
     protected TapTestResultAction(Run<?, ?> r, TapResult tapResult) {
         setRunAndOwner(r);
 
-        this.tapResult = tapResult;
+        setTapResult(tapResult);
     }
 
     /**
@@ -64,10 +99,66 @@ public class TapTestResultAction extends AbstractTestResultAction<TapTestResultA
     }
 
     /**
-     * @return the tapResult
+     * @return the tapResult, with the live results if there are any
      */
     public TapResult getTapResult() {
-        return tapResult;
+        final TapResult live = liveResult;
+        if (live != null) {
+            return getStoredTapResult().copyWithExtraTestSets(live.getTestSets());
+        }
+        return getStoredTapResult();
+    }
+
+    /**
+     * @return the published results, without the live results
+     */
+    TapResult getStoredTapResult() {
+        if (tapResult != null) {
+            return tapResult;
+        }
+        return getResultFile().get();
+    }
+
+    /**
+     * @return the counters of the TAP results, without loading the test sets
+     * @since 2.4.5
+     */
+    public TapResultSummary getSummary() {
+        final TapResult live = liveResult;
+        if (live != null) {
+            return getStoredSummary().plus(live.getSummary());
+        }
+        return getStoredSummary();
+    }
+
+    /**
+     * @return the counters of the published results, without the live results
+     */
+    TapResultSummary getStoredSummary() {
+        if (summary == null) {
+            summary = tapResult != null ? tapResult.getSummary() : TapResultSummary.EMPTY;
+        }
+        return summary;
+    }
+
+    /**
+     * @return whether there are live results, from a TAP stream still being written
+     * @since 2.4.5
+     */
+    public boolean isLive() {
+        return liveResult != null;
+    }
+
+    /**
+     * Replaces the live results. They are shown with the stored results, but are
+     * not stored, nor merged with the results published later.
+     *
+     * @param liveResult the results parsed so far, or {@code null} when the stream ends
+     * @since 2.4.5
+     */
+    synchronized void setLiveResult(TapResult liveResult) {
+        this.liveResult = liveResult;
+        this.streamResult = null;
     }
 
     /* (non-Javadoc)
@@ -75,7 +166,7 @@ public class TapTestResultAction extends AbstractTestResultAction<TapTestResultA
      */
     @Exported(visibility = 2)
     public int getFailCount() {
-        return tapResult.getFailed();
+        return getSummary().getFailed();
     }
 
     /* (non-Javadoc)
@@ -83,7 +174,7 @@ public class TapTestResultAction extends AbstractTestResultAction<TapTestResultA
      */
     @Exported(visibility = 2)
     public int getTotalCount() {
-        return tapResult.getTotal();
+        return getSummary().getTotal();
     }
 
     /* (non-Javadoc)
@@ -91,7 +182,7 @@ public class TapTestResultAction extends AbstractTestResultAction<TapTestResultA
      */
     @Exported(visibility = 2)
     public int getSkipCount() {
-        return tapResult.getSkipped();
+        return getSummary().getSkipped();
     }
 
     /*
@@ -102,8 +193,13 @@ public class TapTestResultAction extends AbstractTestResultAction<TapTestResultA
         return getResult();
     }
 
-    public TapStreamResult getResult() {
-        return new TapStreamResult(owner, tapResult, this);
+    public synchronized TapStreamResult getResult() {
+        TapStreamResult result = streamResult != null ? streamResult.get() : null;
+        if (result == null) {
+            result = new TapStreamResult(owner, getTapResult(), this);
+            streamResult = new SoftReference<>(result);
+        }
+        return result;
     }
 
     /* (non-Javadoc)
@@ -171,20 +267,64 @@ public class TapTestResultAction extends AbstractTestResultAction<TapTestResultA
     @Override
     public void onLoad(Run<?, ?> r) {
         setRunAndOwner(r);
+        if (tapResult != null) {
+            tapResult.setOwner(r);
+        }
     }
 
-    private void setRunAndOwner(Run<?, ?> r) {
+    private synchronized void setRunAndOwner(Run<?, ?> r) {
+        if (this.run != r) {
+            this.resultFile = null;
+            this.streamResult = null;
+        }
         this.run = r;
         this.owner = r instanceof AbstractBuild ? (AbstractBuild<?, ?>) r : null;
     }
 
-    void mergeResult(TapResult additionalResult) {
-        TapStreamResult original = getResult();
+    private synchronized TapResultFile getResultFile() {
+        if (resultFile == null) {
+            resultFile = new TapResultFile(run, RESULT_FILE_NAME);
+        }
+        return resultFile;
+    }
+
+    /**
+     * Moves the legacy results out of the build record before it is written.
+     */
+    protected Object writeReplace() {
+        if (tapResult != null && run != null) {
+            setTapResult(tapResult);
+        }
+        return this;
+    }
+
+    synchronized void mergeResult(TapResult additionalResult) {
+        if (additionalResult == null || additionalResult.getTestSets().isEmpty()) {
+            // nothing to add, the stored results and counters stay as they are
+            return;
+        }
+        TapStreamResult original = new TapStreamResult(owner, getStoredTapResult(), this);
         original.merge(additionalResult);
         setFromTapStreamResult(original);
+        streamResult = null;
     }
 
     private void setFromTapStreamResult(TapStreamResult result) {
-        this.tapResult = result.getTapResult();
+        setTapResult(result.getTapResult());
+    }
+
+    private void setTapResult(TapResult result) {
+        if (result == null) {
+            this.summary = TapResultSummary.EMPTY;
+            return;
+        }
+        this.summary = result.getSummary();
+        try {
+            getResultFile().set(result);
+            this.tapResult = null;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save TAP results of " + run + ", keeping them in the build record", e);
+            this.tapResult = result;
+        }
     }
 }
\ No newline at end of file
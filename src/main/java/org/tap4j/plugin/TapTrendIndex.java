@@ -0,0 +1,363 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.Extension;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+import org.tap4j.plugin.model.TapResultSummary;
+
+/**
+ * Per-job index with the summary of the TAP results of each build, used by the
+ * trend graph so that it does not need to load the builds.
+ *
+ * <p>The index is a text file in the job directory, with one line per published
+ * result: {@code number,passed,failed,skipped,todo,bailOuts,duration}. Lines are
+ * appended; when a build publishes results more than once, its last line wins.
+ * The file is rewritten without the entry of a build when the build is deleted.
+ * Jobs without an index have it created from their builds the first time it is
+ * needed.</p>
+ *
+ * <p>Each job has its own lock, so creating the index of a job with many builds
+ * does not block the other jobs.</p>
+ *
+ * @since 2.4.5
+ */
+public final class TapTrendIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(TapTrendIndex.class.getName());
+
+    public static final String FILE_NAME = "tapTrend.csv";
+
+    /**
+     * Lock of the index of each job.
+     */
+    private static final Map<Job<?, ?>, Object> LOCKS = new WeakHashMap<>();
+
+    /**
+     * Parsed index files, reused while the file does not change.
+     */
+    private static final Map<Job<?, ?>, Snapshot> SNAPSHOTS = new WeakHashMap<>();
+
+    private TapTrendIndex() {
+        super();
+    }
+
+    /**
+     * Records the summary of a build. Called every time results are published.
+     *
+     * @param run build
+     * @param summary summary of all the TAP results of the build
+     */
+    public static void record(Run<?, ?> run, TapResultSummary summary) {
+        final Job<?, ?> job = run.getParent();
+        synchronized (getLock(job)) {
+            final File file = getFile(job);
+            try {
+                if (!file.exists()) {
+                    rebuild(job);
+                }
+                append(file, Collections.singletonList(new Entry(run.getNumber(), summary)));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to update the TAP trend index of " + job.getFullName(), e);
+            }
+        }
+    }
+
+    /**
+     * Removes the entry of a build that was deleted.
+     *
+     * @param run deleted build
+     */
+    public static void remove(Run<?, ?> run) {
+        final Job<?, ?> job = run.getParent();
+        synchronized (getLock(job)) {
+            final File file = getFile(job);
+            try {
+                if (!file.exists()) {
+                    return;
+                }
+                final NavigableMap<Integer, Entry> entries = read(file);
+                if (!entries.containsKey(run.getNumber())) {
+                    return;
+                }
+                final List<Entry> remaining = new ArrayList<>(entries.values());
+                remaining.remove(entries.get(run.getNumber()));
+                final File tmp = new File(file.getParentFile(), FILE_NAME + ".tmp");
+                Files.deleteIfExists(tmp.toPath());
+                append(tmp, remaining);
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to update the TAP trend index of " + job.getFullName(), e);
+            }
+        }
+    }
+
+    /**
+     * @param job job
+     * @return entries of the builds, newest first
+     */
+    public static List<Entry> getEntries(Job<?, ?> job) {
+        return new ArrayList<>(load(job).descendingMap().values());
+    }
+
+    /**
+     * @param job job
+     * @return when the index of the job was last modified, or {@code 0} if it does not exist
+     */
+    public static long lastModified(Job<?, ?> job) {
+        return getFile(job).lastModified();
+    }
+
+    private static File getFile(Job<?, ?> job) {
+        return new File(job.getRootDir(), FILE_NAME);
+    }
+
+    private static Object getLock(Job<?, ?> job) {
+        synchronized (LOCKS) {
+            return LOCKS.computeIfAbsent(job, k -> new Object());
+        }
+    }
+
+    private static NavigableMap<Integer, Entry> load(Job<?, ?> job) {
+        synchronized (getLock(job)) {
+            final File file = getFile(job);
+            try {
+                if (!file.exists()) {
+                    rebuild(job);
+                }
+                Snapshot snapshot;
+                synchronized (SNAPSHOTS) {
+                    snapshot = SNAPSHOTS.get(job);
+                }
+                if (snapshot != null && snapshot.length == file.length() && snapshot.lastModified == file.lastModified()) {
+                    return snapshot.entries;
+                }
+                final NavigableMap<Integer, Entry> entries = read(file);
+                synchronized (SNAPSHOTS) {
+                    SNAPSHOTS.put(job, new Snapshot(file.length(), file.lastModified(), entries));
+                }
+                return entries;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to read the TAP trend index of " + job.getFullName(), e);
+                return Collections.emptyNavigableMap();
+            }
+        }
+    }
+
+    /**
+     * Creates the index from the builds of the job. Only done once per job, for jobs
+     * with builds recorded before the index existed.
+     */
+    private static void rebuild(Job<?, ?> job) throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        for (Run<?, ?> run : job.getBuilds()) {
+            final TapBuildAction action = run.getAction(TapBuildAction.class);
+            if (action != null) {
+                entries.add(new Entry(run.getNumber(), action.getSummary()));
+            }
+        }
+        Collections.reverse(entries);
+        append(getFile(job), entries);
+    }
+
+    private static void append(File file, List<Entry> entries) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Entry entry : entries) {
+                writer.write(entry.toLine());
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static NavigableMap<Integer, Entry> read(File file) throws IOException {
+        final NavigableMap<Integer, Entry> entries = new TreeMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final Entry entry = Entry.fromLine(line);
+                if (entry != null) {
+                    entries.put(entry.getNumber(), entry);
+                }
+            }
+        }
+        return Collections.unmodifiableNavigableMap(entries);
+    }
+
+    /**
+     * Removes the entries of the builds deleted, e.g. by the build discarder.
+     */
+    @Extension
+    public static final class DeletedBuildListener extends RunListener<Run<?, ?>> {
+
+        @Override
+        public void onDeleted(Run<?, ?> run) {
+            if (run.getAction(TapBuildAction.class) != null) {
+                remove(run);
+            }
+        }
+    }
+
+    private static final class Snapshot {
+        private final long length;
+        private final long lastModified;
+        private final NavigableMap<Integer, Entry> entries;
+
+        private Snapshot(long length, long lastModified, NavigableMap<Integer, Entry> entries) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * Summary of the TAP results of a build. Also used as the column key of the
+     * trend graph.
+     */
+    public static final class Entry implements Comparable<Entry> {
+
+        private final int number;
+        private final int passed;
+        private final int failed;
+        private final int skipped;
+        private final int todo;
+        private final int bailOuts;
+        private final float duration;
+
+        public Entry(int number, int passed, int failed, int skipped, int todo, int bailOuts, float duration) {
+            this.number = number;
+            this.passed = passed;
+            this.failed = failed;
+            this.skipped = skipped;
+            this.todo = todo;
+            this.bailOuts = bailOuts;
+            this.duration = duration;
+        }
+
+        public Entry(int number, TapResultSummary summary) {
+            this(number, summary.getPassed(), summary.getFailed(), summary.getSkipped(), summary.getToDo(),
+                    summary.getBailOuts(), summary.getDuration());
+        }
+
+        /**
+         * @param other entry of the same build number
+         * @return an entry with the sum of both, used for matrix builds
+         */
+        public Entry add(Entry other) {
+            return new Entry(number, passed + other.passed, failed + other.failed, skipped + other.skipped,
+                    todo + other.todo, bailOuts + other.bailOuts, duration + other.duration);
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public int getPassed() {
+            return passed;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public int getToDo() {
+            return todo;
+        }
+
+        public int getBailOuts() {
+            return bailOuts;
+        }
+
+        public float getDuration() {
+            return duration;
+        }
+
+        String toLine() {
+            return number + "," + passed + "," + failed + "," + skipped + "," + todo + "," + bailOuts + "," + duration;
+        }
+
+        static Entry fromLine(String line) {
+            final String[] fields = line.split(",");
+            if (fields.length != 7) {
+                return null;
+            }
+            try {
+                return new Entry(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                        Integer.parseInt(fields[3]), Integer.parseInt(fields[4]), Integer.parseInt(fields[5]),
+                        Float.parseFloat(fields[6]));
+            } catch (NumberFormatException e) {
+                // incomplete line, e.g. written while the controller was shutting down
+                return null;
+            }
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            return Integer.compare(number, o.number);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry && ((Entry) o).number == number;
+        }
+
+        @Override
+        public int hashCode() {
+            return number;
+        }
+
+        /**
+         * @return the label of the build in the trend graph
+         */
+        @Override
+        public String toString() {
+            return "#" + number;
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin.model;
+
+import org.tap4j.model.TestSet;
+
+/**
+ * A test set parsed in streaming mode. The test set only keeps part of the tests
+ * (the failures, up to a limit), so the counters of the whole stream are computed
+ * while parsing and kept here.
+ *
+ * @since 2.4.5
+ */
+public class StreamedTestSetMap extends TestSetMap {
+
+    private static final long serialVersionUID = -2262096400318834962L;
+
+    private final TapResultSummary counts;
+
+    /**
+     * @param fileName TAP file name
+     * @param testSet the tests kept while parsing
+     * @param counts counters of all the tests of the stream
+     */
+    public StreamedTestSetMap(String fileName, TestSet testSet, TapResultSummary counts) {
+        super(fileName, testSet);
+        this.counts = counts;
+    }
+
+    /**
+     * @return counters of all the tests of the stream, not only of the tests kept
+     */
+    public TapResultSummary getCounts() {
+        return counts;
+    }
+
+    /**
+     * @return whether some tests were not kept
+     */
+    public boolean isTruncated() {
+        return counts.getTotal() > getTestSet().getNumberOfTestResults();
+    }
+
+    @Override
+    public TestSetMap withFileName(String fileName) {
+        return new StreamedTestSetMap(fileName, getTestSet(), counts);
+    }
+
+}
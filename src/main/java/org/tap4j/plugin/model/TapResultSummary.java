@@ -0,0 +1,126 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin.model;
+
+import java.io.Serializable;
+
+import org.tap4j.plugin.TapResult;
+
+/**
+ * The tallied counters of a {@link TapResult}. This is what the build record
+ * keeps, while the test sets are stored in a separate file.
+ *
+ * @since 2.4.5
+ */
+public final class TapResultSummary implements Serializable {
+
+    private static final long serialVersionUID = -1870427946532914036L;
+
+    public static final TapResultSummary EMPTY = new TapResultSummary(0, 0, 0, 0, 0, 0, 0.0f, 0, 0);
+
+    private final int passed;
+    private final int failed;
+    private final int skipped;
+    private final int todo;
+    private final int bailOuts;
+    private final int total;
+    private final float duration;
+    private final int testSets;
+    private final int parseErrors;
+
+    public TapResultSummary(int passed, int failed, int skipped, int todo, int bailOuts, int total, float duration,
+            int testSets, int parseErrors) {
+        this.passed = passed;
+        this.failed = failed;
+        this.skipped = skipped;
+        this.todo = todo;
+        this.bailOuts = bailOuts;
+        this.total = total;
+        this.duration = duration;
+        this.testSets = testSets;
+        this.parseErrors = parseErrors;
+    }
+
+    /**
+     * @param result a tallied TAP result
+     */
+    public TapResultSummary(TapResult result) {
+        this(result.getPassed(), result.getFailed(), result.getSkipped(), result.getToDo(), result.getBailOuts(),
+                result.getTotal(), result.getDuration(), result.getTestSets().size(),
+                result.getParseErrorTestSets().size());
+    }
+
+    /**
+     * @param other other counters
+     * @return the sum of these counters and the given ones
+     */
+    public TapResultSummary plus(TapResultSummary other) {
+        return new TapResultSummary(passed + other.passed, failed + other.failed, skipped + other.skipped,
+                todo + other.todo, bailOuts + other.bailOuts, total + other.total, duration + other.duration,
+                testSets + other.testSets, parseErrors + other.parseErrors);
+    }
+
+    public int getPassed() {
+        return passed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public int getToDo() {
+        return todo;
+    }
+
+    public int getBailOuts() {
+        return bailOuts;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public float getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return number of test sets (TAP files) parsed
+     */
+    public int getTestSets() {
+        return testSets;
+    }
+
+    /**
+     * @return number of TAP files that could not be parsed
+     */
+    public int getParseErrors() {
+        return parseErrors;
+    }
+
+}
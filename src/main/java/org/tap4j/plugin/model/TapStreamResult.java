@@ -35,9 +35,9 @@ import org.kohsuke.stapler.export.Exported;
 import org.tap4j.model.TestSet;
 import org.tap4j.plugin.TapResult;
 import org.tap4j.plugin.TapTestResultAction;
-import org.tap4j.util.StatusValues;
 
 import javax.annotation.Nullable;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -54,18 +54,22 @@ public class TapStreamResult extends TabulatedResult {
     private final transient Run<?, ?> owner;
     /**
      * The owning action is required by newer Jenkins test result rendering.
-     * TapStreamResult instances are recreated by TapTestResultAction#getResult(),
+     * TapStreamResult instances are created by TapTestResultAction#getResult(),
      * so this reference does not need to be persisted.
      */
     private final transient AbstractTestResultAction tapTestResultAction;
-    private List<TestResult> children = new ArrayList<>();
+    /**
+     * Created when first requested, as most requests do not need a wrapper for each test.
+     */
+    private transient List<TestResult> children;
+    private transient List<TestResult> failedTests;
+    private transient TestResultIndex index;
     private TapResult tapResult;
 
     public TapStreamResult(Run<?, ?> owner, TapResult tapResult, AbstractTestResultAction tapTestResultAction) {
         this.owner = owner;
         this.tapResult = tapResult;
         this.tapTestResultAction = tapTestResultAction;
-        setChildrenInfo();
     }
     
     /* (non-Javadoc)
@@ -113,7 +117,10 @@ public class TapStreamResult extends TabulatedResult {
      * @see hudson.tasks.test.TabulatedResult#getChildren()
      */
     @Override
-    public Collection<? extends TestResult> getChildren() {
+    public synchronized Collection<? extends TestResult> getChildren() {
+        if (children == null) {
+            children = createChildren();
+        }
         return children;
     }
 
@@ -122,7 +129,12 @@ public class TapStreamResult extends TabulatedResult {
      */
     @Override
     public boolean hasChildren() {
-        return !children.isEmpty();
+        for (TestSetMap tsm : tapResult.getTestSets()) {
+            if (!tsm.getTestSet().getTestResults().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /* (non-Javadoc)
@@ -165,20 +177,70 @@ public class TapStreamResult extends TabulatedResult {
         return Collections.emptyList();
     }
     
-    // FIXME: use the getFailedTests, or explain why it's not used
-    public List<TestResult> getFailedTests2() {
-        List<TestResult> failedTests = new ArrayList<>();
-        if(tapResult != null && !tapResult.getTestSets().isEmpty()) {
-            for(TestSetMap tsm : tapResult.getTestSets()) {
-                TestSet ts = tsm.getTestSet();
-                for(org.tap4j.model.TestResult tr : ts.getTestResults()) {
-                    if(tr.getStatus() == StatusValues.NOT_OK) {
-                        failedTests.add(new TapTestResultResult(owner, tsm, tr, this.tapResult.getTodoIsFailure(), tapResult.getIncludeCommentDiagnostics(), tapResult.getValidateNumberOfTests()));
-                    }
+    /**
+     * The failed tests, as counted in {@link #getFailCount()}: TODO tests fail only if
+     * {@link TapResult#getTodoIsFailure()}, and skipped tests never fail. Served from the
+     * failure index of the result, see {@link TapResult#getFailureIndex()}, creating the
+     * wrapper of each test only when it is requested.
+     * <p>
+     * Not {@link #getFailedTests()}, which must return JUnit {@link CaseResult}s.
+     *
+     * @return the failed tests
+     */
+    @Exported(visibility = 2, name = "failures")
+    public synchronized List<TestResult> getFailedTests2() {
+        if (failedTests == null) {
+            failedTests = new FailedTests(tapResult.getTestSets(), tapResult.getFailureIndex());
+        }
+        return failedTests;
+    }
+
+    /**
+     * A view of the failed tests of the failure index.
+     */
+    private final class FailedTests extends AbstractList<TestResult> {
+
+        private final List<TestSetMap> testSets;
+        private final int[][] failures;
+        /**
+         * Number of failed tests before each test set.
+         */
+        private final int[] offsets;
+
+        FailedTests(List<TestSetMap> testSets, int[][] failures) {
+            this.testSets = testSets;
+            this.failures = failures;
+            this.offsets = new int[failures.length + 1];
+            for (int i = 0; i < failures.length; i++) {
+                offsets[i + 1] = offsets[i] + failures[i].length;
+            }
+        }
+
+        @Override
+        public TestResult get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            // last test set starting at or before the index, it cannot be empty
+            int low = 0;
+            int high = failures.length - 1;
+            while (low < high) {
+                final int middle = (low + high + 1) >>> 1;
+                if (offsets[middle] <= index) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
                 }
             }
+            final TestSetMap tsm = testSets.get(low);
+            final org.tap4j.model.TestResult tr = tsm.getTestSet().getTestResults().get(failures[low][index - offsets[low]]);
+            return new TapTestResultResult(owner, tsm, tr, tapResult.getTodoIsFailure(), tapResult.getIncludeCommentDiagnostics(), tapResult.getValidateNumberOfTests());
+        }
+
+        @Override
+        public int size() {
+            return offsets[failures.length];
         }
-        return failedTests;
     }
 
     public float getDuration() {
@@ -219,32 +281,62 @@ public class TapStreamResult extends TabulatedResult {
         String testNumber = testResultName.substring(testResultName.lastIndexOf('-')+1);
         String fileName = name.substring(0, name.lastIndexOf('-'));
         
-        for(TestSetMap tsm : tapResult.getTestSets()) {
-            if(tsm.getFileName().equals(fileName)) {
-                TestSet ts = tsm.getTestSet();
-                org.tap4j.model.TestResult desired = ts.getTestResult(Integer.parseInt(testNumber));
-                return new TapTestResultResult(owner, tsm, desired, this.tapResult.getTodoIsFailure(), tapResult.getIncludeCommentDiagnostics(), tapResult.getValidateNumberOfTests());
+        final TestResultIndex.Entry entry;
+        try {
+            entry = getIndex().get(fileName, Integer.parseInt(testNumber));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (entry == null) {
+            return null; // ops, something went wrong
+        }
+        return new TapTestResultResult(owner, entry.testSetMap, entry.testResult, this.tapResult.getTodoIsFailure(), tapResult.getIncludeCommentDiagnostics(), tapResult.getValidateNumberOfTests());
+    }
+
+    /**
+     * @param subtest subtest of one of the tests of this result
+     * @param testNumber number of the test in the subtest
+     * @return the test of the subtest, or {@code null} if not found
+     */
+    @Nullable
+    org.tap4j.model.TestResult getSubtestResult(TestSet subtest, int testNumber) {
+        final TestResultIndex index = getIndex();
+        if (index.contains(subtest)) {
+            return index.getSubtestResult(subtest, testNumber);
+        }
+        // subtest from a copy of the results that was loaded again
+        for (org.tap4j.model.TestResult tr : subtest.getTestResults()) {
+            if (tr.getTestNumber() != null && tr.getTestNumber() == testNumber) {
+                return tr;
             }
         }
-        
-        return null; // ops, something went wrong
+        return null;
     }
 
-    public void merge(TapResult other) {
+    private synchronized TestResultIndex getIndex() {
+        if (index == null) {
+            index = new TestResultIndex(tapResult);
+        }
+        return index;
+    }
+
+    public synchronized void merge(TapResult other) {
 
         tapResult = tapResult.copyWithExtraTestSets(other.getTestSets());
         tapResult.tally();
-        children = new ArrayList<>();
-
-        setChildrenInfo();
+        children = null;
+        failedTests = null;
+        index = null;
     }
 
-    private void setChildrenInfo() {
+    private List<TestResult> createChildren() {
+        final List<TestResult> children = new ArrayList<>(tapResult.getTotal());
         for(TestSetMap tsm : tapResult.getTestSets()) {
             TestSet ts = tsm.getTestSet();
             for(org.tap4j.model.TestResult tr : ts.getTestResults()) {
-                this.children.add(new TapTestResultResult(owner, tsm, tr, tapResult.getTodoIsFailure(), tapResult.getIncludeCommentDiagnostics(), tapResult.getValidateNumberOfTests()));
+                children.add(new TapTestResultResult(owner, tsm, tr, tapResult.getTodoIsFailure(), tapResult.getIncludeCommentDiagnostics(), tapResult.getValidateNumberOfTests()));
             }
         }
+        return Collections.unmodifiableList(children);
     }
 }
@@ -33,10 +33,13 @@ import jenkins.model.Jenkins;
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.Stapler;
 import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
 import org.tap4j.model.Comment;
 import org.tap4j.model.Directive;
 import org.tap4j.model.TestSet;
 import org.tap4j.plugin.TapResult;
+import org.tap4j.plugin.TapTestHistory;
 import org.tap4j.plugin.TapTestResultAction;
 import org.tap4j.plugin.util.Util;
 import org.tap4j.util.DirectiveValues;
@@ -111,6 +114,28 @@ public class TapTestResultResult extends TestResult {
         return parent;
     }
 
+    /**
+     * Resolves the tests of the subtest of this test, by test number, e.g.
+     * {@code sample.tap-3/2/} for the second test of the subtest of test 3.
+     */
+    @Override
+    public Object getDynamic(String token, StaplerRequest req, StaplerResponse rsp) {
+        final TestSet subtest = this.tapTestResult.getSubtest();
+        final TapStreamResult streamResult = req != null ? req.findAncestorObject(TapStreamResult.class) : null;
+        if (subtest != null && streamResult != null) {
+            org.tap4j.model.TestResult desired = null;
+            try {
+                desired = streamResult.getSubtestResult(subtest, Integer.parseInt(token));
+            } catch (NumberFormatException e) {
+                // not a test number
+            }
+            if (desired != null) {
+                return new TapTestResultResult(owner, testSetMap, desired, todoIsFailure, includeCommentDiagnostics, validateNumberOfTests);
+            }
+        }
+        return super.getDynamic(token, req, rsp);
+    }
+
     /* (non-Javadoc)
      * @see hudson.tasks.test.TestObject#findCorrespondingResult(java.lang.String)
      */
@@ -126,6 +151,7 @@ public class TapTestResultResult extends TestResult {
      * @see hudson.tasks.test.TestObject#getName()
      */
     @Override
+    @Exported(visibility = 3)
     public String getName() {
         StringBuilder buf = new StringBuilder();
         buf.append(tapTestResult.getTestNumber());
@@ -137,16 +163,19 @@ public class TapTestResultResult extends TestResult {
         return buf.toString();
     }
     
+    @Exported(visibility = 3)
     public String getStatus() {
         boolean failure = Util.isFailure(this.tapTestResult, todoIsFailure);
         return failure ? "NOT OK" : "OK";
     }
     
+    @Exported(visibility = 3)
     public String getSkip() {
         boolean skip = Util.isSkipped(this.tapTestResult);
         return skip ? "Yes" : "No";
     }
     
+    @Exported(visibility = 3)
     public String getTodo() {
         String todo = "No";
         // TODO: not consistent with the other methods in TapResult
@@ -158,6 +187,38 @@ public class TapTestResultResult extends TestResult {
         }
         return todo;
     }
+
+    /**
+     * The build is not loaded, the pages link it by its number.
+     *
+     * @return number of the build where this test started failing, or {@code 0} if it
+     *         did not fail, or if its build was recorded without test history
+     * @since 2.4.5
+     */
+    @Exported(visibility = 3)
+    public int getFailedSince() {
+        final TapTestHistory.Entry entry = getHistory();
+        return entry != null ? entry.getFailedSince() : 0;
+    }
+
+    /**
+     * @return number of consecutive builds, publishing TAP results, where this test
+     *         failed, or {@code 0} if it did not fail
+     * @since 2.4.5
+     */
+    @Exported(visibility = 3)
+    public int getAge() {
+        final TapTestHistory.Entry entry = getHistory();
+        return entry != null ? entry.getStreak() : 0;
+    }
+
+    @CheckForNull
+    private TapTestHistory.Entry getHistory() {
+        if (owner == null || !Util.isFailure(this.tapTestResult, todoIsFailure)) {
+            return null;
+        }
+        return TapTestHistory.getEntry(owner, testSetMap, tapTestResult);
+    }
     
     public String getFullName() {
         return getName();
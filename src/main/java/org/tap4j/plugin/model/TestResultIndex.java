@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin.model;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.tap4j.model.TestResult;
+import org.tap4j.model.TestSet;
+import org.tap4j.plugin.TapResult;
+
+/**
+ * Index of the tests of a {@link TapResult}, by file name and test number, as used
+ * in the test URLs. The tests of subtests are indexed by test number too, per subtest.
+ *
+ * @since 2.4.5
+ */
+final class TestResultIndex {
+
+    static final class Entry {
+        final TestSetMap testSetMap;
+        final TestResult testResult;
+
+        private Entry(TestSetMap testSetMap, TestResult testResult) {
+            this.testSetMap = testSetMap;
+            this.testResult = testResult;
+        }
+    }
+
+    private final Map<String, Entry> tests = new HashMap<>();
+    private final Map<TestSet, Map<Integer, TestResult>> subtests = new IdentityHashMap<>();
+
+    TestResultIndex(TapResult tapResult) {
+        final Deque<TestSet> pending = new ArrayDeque<>();
+        for (TestSetMap tsm : tapResult.getTestSets()) {
+            for (TestResult tr : tsm.getTestSet().getTestResults()) {
+                // the first file with a name wins, as the test URLs do not tell them apart
+                tests.putIfAbsent(key(tsm.getFileName(), tr.getTestNumber()), new Entry(tsm, tr));
+                if (tr.getSubtest() != null) {
+                    pending.add(tr.getSubtest());
+                }
+            }
+        }
+        while (!pending.isEmpty()) {
+            final TestSet subtest = pending.poll();
+            final Map<Integer, TestResult> byNumber = new HashMap<>();
+            for (TestResult tr : subtest.getTestResults()) {
+                byNumber.putIfAbsent(tr.getTestNumber(), tr);
+                if (tr.getSubtest() != null) {
+                    pending.add(tr.getSubtest());
+                }
+            }
+            subtests.put(subtest, byNumber);
+        }
+    }
+
+    Entry get(String fileName, int testNumber) {
+        return tests.get(key(fileName, testNumber));
+    }
+
+    /**
+     * @param subtest subtest of a test in this index
+     * @param testNumber number of the test in the subtest
+     * @return the test, or {@code null} if the subtest has no such test, or is not from this index
+     */
+    TestResult getSubtestResult(TestSet subtest, int testNumber) {
+        final Map<Integer, TestResult> byNumber = subtests.get(subtest);
+        return byNumber != null ? byNumber.get(testNumber) : null;
+    }
+
+    boolean contains(TestSet subtest) {
+        return subtests.containsKey(subtest);
+    }
+
+    private static String key(String fileName, Integer testNumber) {
+        return fileName + "-" + testNumber;
+    }
+
+}
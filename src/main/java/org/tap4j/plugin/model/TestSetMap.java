@@ -56,5 +56,15 @@ public class TestSetMap implements Serializable {
     {
         return this.testSet;
     }
+
+    /**
+     * @param fileName the new file name
+     * @return a copy of this map, with the given file name
+     * @since 2.4.5
+     */
+    public TestSetMap withFileName( String fileName )
+    {
+        return new TestSetMap(fileName, this.testSet);
+    }
     
 }
@@ -0,0 +1,222 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin.util;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and writes TAP files that may be compressed. Compressed files are
+ * detected by their first bytes, not by their names, so every reader of the TAP
+ * files of a build, or of the workspace, decompresses them transparently.
+ *
+ * @since 2.4.5
+ */
+public final class CompressionUtil {
+
+    /**
+     * Compression formats recognized in TAP files.
+     */
+    public enum Format {
+        NONE(),
+        GZIP(0x1f, 0x8b),
+        XZ(0xfd, '7', 'z', 'X', 'Z', 0x00),
+        ZSTD(0x28, 0xb5, 0x2f, 0xfd);
+
+        private final int[] magic;
+
+        Format(int... magic) {
+            this.magic = magic;
+        }
+
+        private boolean matches(byte[] header, int length) {
+            if (magic.length == 0 || length < magic.length) {
+                return false;
+            }
+            for (int i = 0; i < magic.length; i++) {
+                if ((header[i] & 0xff) != magic[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Number of bytes read to detect the format of a file.
+     */
+    private static final int HEADER_LENGTH = 6;
+
+    /**
+     * Length of the gzip trailer, with the CRC and the uncompressed size.
+     */
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    /**
+     * Largest ratio between the uncompressed and the compressed sizes of deflate.
+     * Gzip files longer than 2<sup>32</sup> divided by it may have a size larger than
+     * the one of their trailer.
+     */
+    private static final int MAX_DEFLATE_RATIO = 1032;
+
+    /**
+     * Returned by {@link #getUncompressedLength(File)} when the size is not known.
+     */
+    public static final long UNKNOWN_LENGTH = -1;
+
+    private CompressionUtil() {
+        super();
+    }
+
+    /**
+     * @param file a file
+     * @return whether the file is gzip compressed
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isGzip(File file) throws IOException {
+        return getFormat(file) == Format.GZIP;
+    }
+
+    /**
+     * @param file a file
+     * @return the compression format of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static Format getFormat(File file) throws IOException {
+        try (InputStream is = Files.newInputStream(file.toPath())) {
+            return getFormat(is);
+        }
+    }
+
+    private static Format getFormat(InputStream is) throws IOException {
+        final byte[] header = new byte[HEADER_LENGTH];
+        final int length = IOUtils.read(is, header);
+        for (Format format : Format.values()) {
+            if (format.matches(header, length)) {
+                return format;
+            }
+        }
+        return Format.NONE;
+    }
+
+    /**
+     * Returns the size of the contents of a file once decompressed. For gzip files
+     * it is read from the gzip trailer, which holds it modulo 2<sup>32</sup>, so it
+     * is only known for files too short to decompress to 4 GB or more.
+     *
+     * @param file a file, compressed or not
+     * @return the size of the file decompressed, in bytes, or {@link #UNKNOWN_LENGTH}
+     * @throws IOException if the file cannot be read
+     */
+    public static long getUncompressedLength(File file) throws IOException {
+        final long length = file.length();
+        if (length < GZIP_TRAILER_LENGTH || !isGzip(file)) {
+            return length;
+        }
+        if (length > (1L << 32) / MAX_DEFLATE_RATIO) {
+            // the size in the trailer may have wrapped around
+            return UNKNOWN_LENGTH;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(length - 4);
+            return (raf.read() | raf.read() << 8 | raf.read() << 16 | (long) raf.read() << 24);
+        }
+    }
+
+    /**
+     * @param file a file, compressed or not
+     * @return a stream with the contents of the file, decompressed
+     * @throws IOException if the file cannot be read, or is compressed in a format
+     * that is not supported
+     */
+    public static InputStream open(File file) throws IOException {
+        final InputStream is = new BufferedInputStream(Files.newInputStream(file.toPath()));
+        try {
+            is.mark(HEADER_LENGTH);
+            final Format format = getFormat(is);
+            is.reset();
+            switch (format) {
+                case NONE:
+                    return is;
+                case GZIP:
+                    return new GZIPInputStream(is);
+                default:
+                    throw new IOException("Unsupported compression format " + format + " of [" + file
+                            + "]. Compress it with gzip or leave it uncompressed.");
+            }
+        } catch (IOException e) {
+            is.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param file a TAP file, compressed or not
+     * @return a reader of the contents of the file, decompressed
+     * @throws IOException if the file cannot be read, or is compressed in a format
+     * that is not supported
+     */
+    public static Reader openReader(File file) throws IOException {
+        return new InputStreamReader(open(file), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compresses a file with gzip, replacing it. Does nothing if it is already
+     * compressed, in any format.
+     *
+     * @param file the file to compress
+     * @return whether the file was compressed
+     * @throws IOException if the file cannot be read or written
+     */
+    public static boolean compress(File file) throws IOException {
+        if (getFormat(file) != Format.NONE) {
+            return false;
+        }
+        final Path source = file.toPath();
+        final Path tmp = source.resolveSibling(file.getName() + ".tmp");
+        try (OutputStream os = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+            Files.copy(source, os);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, source, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * Copies a TAP stream to the build console line by line, without reading the
+ * whole stream in memory. The output can be limited to its first and last lines,
+ * to the failed tests (with their YAML diagnostics) and bail outs, and to a
+ * maximum size, after which a truncation marker is printed.
+ *
+ * @since 2.4.5
+ */
+public class ConsoleEcho implements Serializable {
+
+    private static final long serialVersionUID = 3620145907329512278L;
+
+    /**
+     * Prints every line of the stream.
+     */
+    public static final ConsoleEcho ALL = new ConsoleEcho(0, 0, 0, false);
+
+    private final int headLines;
+    private final int tailLines;
+    private final long maxChars;
+    private final boolean onlyFailures;
+
+    /**
+     * @param headLines number of lines printed from the start of the stream
+     * @param tailLines number of lines printed from the end of the stream. When both
+     *                  {@code headLines} and {@code tailLines} are {@code 0} every line is printed
+     * @param maxChars maximum number of characters printed, {@code 0} for no limit
+     * @param onlyFailures print only the failed tests, their diagnostics and the bail outs
+     */
+    public ConsoleEcho(int headLines, int tailLines, long maxChars, boolean onlyFailures) {
+        this.headLines = Math.max(0, headLines);
+        this.tailLines = Math.max(0, tailLines);
+        this.maxChars = Math.max(0, maxChars);
+        this.onlyFailures = onlyFailures;
+    }
+
+    public int getHeadLines() {
+        return headLines;
+    }
+
+    public int getTailLines() {
+        return tailLines;
+    }
+
+    public long getMaxChars() {
+        return maxChars;
+    }
+
+    public boolean getOnlyFailures() {
+        return onlyFailures;
+    }
+
+    /**
+     * Copies the stream. The reader is not closed.
+     *
+     * @param reader TAP stream
+     * @param out receives each line printed
+     * @throws IOException if the stream cannot be read
+     */
+    public void echo(Reader reader, Consumer<String> out) throws IOException {
+        final BufferedReader lines = new BufferedReader(reader);
+        final boolean all = headLines == 0 && tailLines == 0;
+        final Deque<String> tail = new ArrayDeque<>();
+        final Printer printer = new Printer(out);
+        long selected = 0;
+        // after a failed test, and inside its YAML diagnostic
+        boolean afterFailure = false;
+        boolean inFailureDiagnostic = false;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (onlyFailures) {
+                final String trimmed = line.trim();
+                if (inFailureDiagnostic) {
+                    inFailureDiagnostic = !"...".equals(trimmed);
+                } else if (afterFailure && "---".equals(trimmed)) {
+                    inFailureDiagnostic = true;
+                    afterFailure = false;
+                } else {
+                    afterFailure = trimmed.startsWith("not ok");
+                    if (!afterFailure && !trimmed.startsWith("Bail out!")) {
+                        continue;
+                    }
+                }
+            }
+            selected++;
+            if (all || selected <= headLines) {
+                if (!printer.print(line)) {
+                    return;
+                }
+            } else if (tailLines > 0) {
+                tail.addLast(line);
+                if (tail.size() > tailLines) {
+                    tail.removeFirst();
+                }
+            }
+        }
+        final long omitted = selected - headLines - tail.size();
+        if (!all && omitted > 0 && !printer.print("... " + omitted + " line(s) omitted ...")) {
+            return;
+        }
+        for (String tailLine : tail) {
+            if (!printer.print(tailLine)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Prints lines until the maximum number of characters is reached.
+     */
+    private final class Printer {
+
+        private final Consumer<String> out;
+        private long printed;
+
+        Printer(Consumer<String> out) {
+            this.out = out;
+        }
+
+        /**
+         * @return whether more lines can be printed
+         */
+        boolean print(String line) {
+            if (maxChars > 0 && printed + line.length() > maxChars) {
+                out.accept("... output truncated after " + printed + " characters ...");
+                return false;
+            }
+            printed += line.length() + 1;
+            out.accept(line);
+            return true;
+        }
+    }
+
+}
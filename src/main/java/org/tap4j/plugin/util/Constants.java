@@ -26,5 +26,7 @@ package org.tap4j.plugin.util;
 public final class Constants {
 
     public static final String TAP_DIR_NAME = "tap-master-files";
+
+    public static final String TAP_ATTACHMENTS_DIR_NAME = "tap-attachments";
     
 }
@@ -0,0 +1,216 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+/**
+ * The rows of the table of a YAML diagnostic, walked lazily so that views can write
+ * them straight to the response. Nested maps are walked depth first, their rows
+ * indented one level more than their key.
+ *
+ * @since 2.4.5
+ */
+public class DiagnosticRows implements Iterable<DiagnosticRows.Row> {
+
+    /**
+     * Diagnostics deeper than this are collapsed by default.
+     */
+    public static final int COLLAPSE_DEPTH = 3;
+
+    /**
+     * Diagnostics with more rows than this are collapsed by default.
+     */
+    public static final int COLLAPSE_ROWS = 25;
+
+    /**
+     * Diagnostics with more characters in their values than this are collapsed by default.
+     */
+    public static final int COLLAPSE_CHARS = 4096;
+
+    /**
+     * Attachments deeper than this are downloaded with the key of their parent map, unless
+     * it is one of {@link #PARENT_KEYS}.
+     */
+    private static final int ATTACHMENT_PARENT_DEPTH = 3;
+
+    private static final List<String> PARENT_KEYS = Arrays.asList("files", "extensions");
+
+    private final Map<String, Object> diagnostic;
+
+    /**
+     * @param diagnostic YAML diagnostic of a test result
+     */
+    public DiagnosticRows(Map<String, Object> diagnostic) {
+        this.diagnostic = diagnostic == null ? Collections.emptyMap() : diagnostic;
+    }
+
+    /**
+     * @param diagnostic YAML diagnostic of a test result
+     * @return whether it is deep or large enough to be shown collapsed. Only the rows
+     * up to the limits are walked.
+     */
+    public static boolean isCollapsed(Map<String, Object> diagnostic) {
+        int rows = 0;
+        long chars = 0;
+        for (Row row : new DiagnosticRows(diagnostic)) {
+            rows++;
+            chars += row.getKey().length() + (row.getValue() == null ? 0 : row.getValue().length());
+            if (rows > COLLAPSE_ROWS || row.getDepth() > COLLAPSE_DEPTH || chars > COLLAPSE_CHARS) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<Row> iterator() {
+        return new RowIterator(diagnostic);
+    }
+
+    /**
+     * A row of the table.
+     */
+    public static final class Row {
+
+        private final int depth;
+        private final String key;
+        private final String value;
+        private final boolean map;
+        private final String attachmentKey;
+
+        private Row(int depth, String key, String value, boolean map, String attachmentKey) {
+            this.depth = depth;
+            this.key = key;
+            this.value = value;
+            this.map = map;
+            this.attachmentKey = attachmentKey;
+        }
+
+        /**
+         * @return depth of the row, starting at {@code 1}
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return the text of the value, the name of the file if it is an attachment, or
+         * {@code null} if it is a map, whose rows follow this one
+         */
+        public String getValue() {
+            return value;
+        }
+
+        public boolean isMap() {
+            return map;
+        }
+
+        public boolean isAttachment() {
+            return attachmentKey != null;
+        }
+
+        /**
+         * @return the key to download the attachment, see {@link org.tap4j.plugin.TapResult#doDownloadAttachment}
+         */
+        public String getAttachmentKey() {
+            return attachmentKey;
+        }
+    }
+
+    /**
+     * The entries of a map being walked.
+     */
+    private static final class Level {
+
+        private final Iterator<Entry<String, Object>> entries;
+        private final Map<String, Object> map;
+        private final String parentKey;
+        private final int depth;
+        private final boolean attachment;
+
+        Level(Map<String, Object> map, String parentKey, int depth) {
+            this.entries = map.entrySet().iterator();
+            this.map = map;
+            this.parentKey = parentKey;
+            this.depth = depth;
+            this.attachment = map.containsKey("File-Type")
+                    && (map.containsKey("File-Location") || map.containsKey("File-Content"));
+        }
+    }
+
+    private static final class RowIterator implements Iterator<Row> {
+
+        private final Deque<Level> levels = new ArrayDeque<>();
+
+        RowIterator(Map<String, Object> diagnostic) {
+            levels.push(new Level(diagnostic, null, 1));
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!levels.isEmpty() && !levels.peek().entries.hasNext()) {
+                levels.pop();
+            }
+            return !levels.isEmpty();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Level level = levels.peek();
+            final Entry<String, Object> entry = level.entries.next();
+            final String key = String.valueOf(entry.getKey());
+            final Object value = entry.getValue();
+            if (level.attachment && "File-Content".equals(key)) {
+                final Object name = level.map.get("File-Name");
+                final String fileName = name instanceof String ? (String) name : "attachment";
+                final boolean useParentKey = level.parentKey != null && level.depth > ATTACHMENT_PARENT_DEPTH
+                        && !PARENT_KEYS.contains(level.parentKey.trim().toLowerCase(Locale.ROOT));
+                return new Row(level.depth, key, fileName, false, useParentKey ? level.parentKey : fileName);
+            }
+            if (!level.attachment && value instanceof Map) {
+                levels.push(new Level((Map<String, Object>) value, key, level.depth + 1));
+                return new Row(level.depth, key, null, true, null);
+            }
+            return new Row(level.depth, key, String.valueOf(value), false, null);
+        }
+    }
+}
@@ -43,8 +43,7 @@ import org.jfree.ui.RectangleInsets;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 import org.tap4j.plugin.AbstractTapProjectAction;
-import org.tap4j.plugin.TapBuildAction;
-import org.tap4j.plugin.TapResult;
+import org.tap4j.plugin.TapTrendIndex;
 
 import java.awt.*;
 import java.io.IOException;
@@ -118,17 +117,14 @@ public class GraphHelper
 
         @Override
         public String generateURL(CategoryDataset dataset, int row, int column) {
-            NumberOnlyBuildLabel label = (NumberOnlyBuildLabel) dataset.getColumnKey(column);
-            return  label.getRun().getNumber() + "/" + AbstractTapProjectAction.URL_NAME + "/";
+            TapTrendIndex.Entry label = (TapTrendIndex.Entry) dataset.getColumnKey(column);
+            return  label.getNumber() + "/" + AbstractTapProjectAction.URL_NAME + "/";
         }
 
           @Override
         public String generateToolTip(CategoryDataset dataset, int row, int column) 
         {
-              NumberOnlyBuildLabel label = (NumberOnlyBuildLabel) dataset.getColumnKey(column);
-              TapBuildAction build = label.getRun().getAction(TapBuildAction.class);
-              TapResult report = build.getResult();
-              report.tally();
+              TapTrendIndex.Entry report = (TapTrendIndex.Entry) dataset.getColumnKey(column);
 
               switch (row) {
                   case 0:
@@ -0,0 +1,138 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010-2026 Bruno P. Kinoshita
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tap4j.plugin.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import org.tap4j.model.Plan;
+import org.tap4j.model.TestResult;
+import org.tap4j.model.TestSet;
+import org.tap4j.util.StatusValues;
+
+/**
+ * Flattens a test set with subtests into a test set with only the tests that have
+ * no subtests, in a single pass over the tree.
+ *
+ * <p>Tests are numbered in breadth-first order. The description of a nested test is
+ * prefixed with the descriptions of its parents. When a subtest has fewer tests than
+ * its plan, a failed test is added for the missing ones.</p>
+ *
+ * <p>The descriptions of the parents are not copied at each level, only the
+ * description of each test in the result is built, from its chain of parents.</p>
+ *
+ * @since 2.4.5
+ */
+public final class TestSetFlattener {
+
+    private TestSetFlattener() {
+        super();
+    }
+
+    /**
+     * @param testSet test set to be flattened. Its tests are moved to the returned test set
+     * @return a test set with the tests without subtests
+     */
+    public static TestSet flatten(TestSet testSet) {
+        final TestSet result = new TestSet();
+        final Deque<Node> pending = new ArrayDeque<>();
+        for (TestResult testResult : testSet.getTestResults()) {
+            pending.add(new Node(testResult, null));
+        }
+        int testIndex = 1;
+        while (!pending.isEmpty()) {
+            final Node node = pending.poll();
+            final TestResult actualTestResult = node.testResult;
+            final TestSet subtests = actualTestResult.getSubtest();
+            if (subtests == null || subtests.getNumberOfTestResults() == 0) {
+                if (node.parent != null) {
+                    actualTestResult.setDescription(node.getDescription());
+                }
+                actualTestResult.setTestNumber(testIndex++);
+                result.addTestResult(actualTestResult);
+            } else {
+                final List<TestResult> subtestResults = subtests.getTestResults();
+                for (TestResult subtestResult : subtestResults) {
+                    pending.add(new Node(subtestResult, node));
+                }
+
+                final Plan subtestPlan = subtests.getPlan();
+                if (subtestPlan != null) {
+                    final int subtestCountAsPlanned = subtestPlan.getLastTestNumber() - subtestPlan.getInitialTestNumber() + 1;
+                    if (subtestCountAsPlanned != subtestResults.size()) {
+                        final TestResult missingTestResult = new TestResult();
+                        missingTestResult.setStatus(StatusValues.NOT_OK);
+                        missingTestResult.setDescription(
+                                String.format("%s %s %d %s", node.getDescription(), "failed:",
+                                        subtestCountAsPlanned - subtestResults.size(), "subtest(s) missing"));
+                        // already has the description of its parents
+                        pending.add(new Node(missingTestResult, null));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A test, and the test that has it as subtest.
+     */
+    private static final class Node {
+        private final TestResult testResult;
+        private final Node parent;
+
+        private Node(TestResult testResult, Node parent) {
+            this.testResult = testResult;
+            this.parent = parent;
+        }
+
+        /**
+         * @return the description of the test, prefixed with the descriptions of its parents
+         */
+        private String getDescription() {
+            if (parent == null) {
+                return testResult.getDescription();
+            }
+            int depth = 0;
+            for (Node n = this; n != null; n = n.parent) {
+                depth++;
+            }
+            final String[] descriptions = new String[depth];
+            int length = 0;
+            int i = depth;
+            for (Node n = this; n != null; n = n.parent) {
+                // same as concatenating the descriptions, a missing one is "null"
+                descriptions[--i] = String.valueOf(n.testResult.getDescription());
+                length += descriptions[i].length();
+            }
+            final StringBuilder sb = new StringBuilder(length);
+            for (String description : descriptions) {
+                sb.append(description);
+            }
+            return sb.toString();
+        }
+    }
+
+}
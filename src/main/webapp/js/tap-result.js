@@ -0,0 +1,45 @@
+/*
+ * Loads the TAP lines of each file of the TAP Extended Test Results page when the
+ * file is opened, the following pages when "Show more" is clicked, and the collapsed
+ * YAML diagnostics when they are expanded.
+ */
+(function () {
+    var base = window.location.pathname.replace(/\/?$/, '/');
+
+    function load(url, target) {
+        fetch(base + url, { credentials: 'same-origin' })
+            .then(function (response) {
+                if (!response.ok) {
+                    throw new Error(response.status + ' ' + response.statusText);
+                }
+                return response.text();
+            })
+            .then(function (html) {
+                target.outerHTML = html;
+            })
+            .catch(function (error) {
+                target.textContent = 'Failed to load: ' + error.message;
+            });
+    }
+
+    document.addEventListener('click', function (event) {
+        var button = event.target.closest('.tap-more, .tap-yaml-expand');
+        if (button) {
+            button.disabled = true;
+            load(button.getAttribute('data-url'), button);
+        }
+    });
+
+    document.querySelectorAll('details.tap-file').forEach(function (details) {
+        details.addEventListener('toggle', function () {
+            var lines = details.querySelector('.tap-file-lines');
+            if (details.open && lines && !lines.hasAttribute('data-loading')) {
+                lines.setAttribute('data-loading', 'true');
+                load(lines.getAttribute('data-url'), lines);
+            }
+        });
+        if (details.getAttribute('data-open') === 'true') {
+            details.open = true;
+        }
+    });
+})();
@@ -39,12 +39,18 @@ import org.jvnet.hudson.test.recipes.LocalData;
 import org.tap4j.plugin.model.TapStreamResult;
 import org.tap4j.plugin.model.TapTestResultResult;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 
 /**
@@ -148,6 +154,18 @@ public class TapPublisherTest {
 
         assertEquals(1, build.getActions(TapTestResultAction.class).size());
         assertEquals(1, build.getActions(TapBuildAction.class).size());
+        // both actions read the same results
+        TapResult merged = build.getAction(TapTestResultAction.class).getTapResult();
+        TapResult fromBuildAction = build.getAction(TapBuildAction.class).getResult();
+        assertEquals(merged.getTotal(), fromBuildAction.getTotal());
+        assertEquals(merged.getFailed(), fromBuildAction.getFailed());
+        assertEquals(merged.getTestSets().size(), fromBuildAction.getTestSets().size());
+
+        assertEquals(merged.getTotal(), build.getAction(TapTestResultAction.class).getSummary().getTotal());
+        assertSame(merged, merged.copyWithExtraTestSets(Collections.emptyList()));
+        // the stream result is shared while it is referenced
+        TapStreamResult streamResult = build.getAction(TapTestResultAction.class).getResult();
+        assertSame(streamResult, build.getAction(TapTestResultAction.class).getResult());
 
         assertTestResultsMerged(build);
 
@@ -270,6 +288,29 @@ public class TapPublisherTest {
         assertTestResultsBasic(build);
     }
 
+    /**
+     * Verifies that the test sets are stored in a separate file, and not in the build record.
+     */
+    @LocalData
+    @Test
+    public void resultsAreStoredOutsideTheBuildRecord() throws Exception {
+        project.scheduleBuild2(0).get(60, TimeUnit.SECONDS);
+
+        FreeStyleBuild build = project.getBuildByNumber(1);
+        assertTrue(new File(build.getRootDir(), TapTestResultAction.RESULT_FILE_NAME).isFile());
+        String buildRecord = new String(Files.readAllBytes(new File(build.getRootDir(), "build.xml").toPath()),
+                StandardCharsets.UTF_8);
+        assertFalse(buildRecord.contains("<testSets>"));
+
+        reloadJenkins();
+
+        build = project.getBuildByNumber(1);
+        TapTestResultAction action = build.getAction(TapTestResultAction.class);
+        assertEquals(action.getTotalCount(), action.getTapResult().getTotal());
+        assertEquals(action.getSummary().getTestSets(), action.getTapResult().getTestSets().size());
+        assertTestResultsBasic(build);
+    }
+
     private void reloadJenkins() throws Exception {
         j.jenkins.reload();
         project = (FreeStyleProject) j.jenkins.getItem("tap");
@@ -0,0 +1,92 @@
+package org.tap4j.plugin.attachments;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Objects;
+
+import org.htmlunit.Page;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+import org.tap4j.plugin.TapPublisher;
+import org.tap4j.plugin.util.Constants;
+
+/**
+ * Tests for the attachments extracted when the TAP results are published.
+ */
+public class TestAttachments {
+
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Test
+    public void testAttachmentIsDownloadedFromTheBuild() throws Exception {
+        FreeStyleProject project = jenkins.createProject(FreeStyleProject.class, "attachments");
+
+        final String tap = "1..1\n" +
+                "ok 1 - with attachment\n" +
+                "  ---\n" +
+                "  extensions:\n" +
+                "    Files:\n" +
+                "      hello.txt:\n" +
+                "        File-Name: hello.txt\n" +
+                "        File-Size: 11\n" +
+                "        File-Type: text/plain\n" +
+                "        File-Content: aGVsbG8gd29ybGQ=\n" +
+                "  ...\n";
+        project.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher,
+                    BuildListener listener) throws InterruptedException, IOException {
+                FilePath workspace = Objects.requireNonNull(build.getWorkspace());
+                workspace.child("result.tap").write(tap, "UTF-8");
+                return true;
+            }
+        });
+
+        TapPublisher publisher = new TapPublisher(
+                "*.tap", // test results
+                true,  // failIfNoResults
+                false, // failedTestsMarkBuildAsFailure
+                false, // outputTapToConsole
+                true,  // enableSubtests
+                false, // discardOldReports
+                true,  // todoIsFailure
+                true,  // includeCommentDiagnostics
+                false, // validateNumberOfTests
+                true,  // planRequired
+                false, // verbose
+                false, // showOnlyFailures
+                false, // stripSingleParents
+                false, // flattenTapResult
+                false, // removeYamlIfCorrupted
+                false); // skipIfBuildNotOk
+
+        project.getPublishersList().add(publisher);
+        project.save();
+        FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+        assertTrue(new File(build.getRootDir(), Constants.TAP_ATTACHMENTS_DIR_NAME).isDirectory());
+
+        try (JenkinsRule.WebClient wc = jenkins.createWebClient()) {
+            Page page = wc.goTo(build.getUrl() + "tapResults/downloadAttachment?f=result.tap&key=hello.txt", null);
+            assertEquals("hello world", page.getWebResponse().getContentAsString());
+            assertEquals("11", page.getWebResponse().getResponseHeaderValue("Content-Length"));
+
+            // the TAP file is not parsed again for an attachment that it does not have
+            wc.assertFails(build.getUrl() + "tapResults/downloadAttachment?f=result.tap&key=missing.txt", 404);
+        }
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Tests for downloading the attachments of TAP results.
+ */
+package org.tap4j.plugin.attachments;
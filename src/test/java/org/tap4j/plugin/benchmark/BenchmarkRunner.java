@@ -0,0 +1,46 @@
+package org.tap4j.plugin.benchmark;
+
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of this package, reporting the throughput and, through the
+ * GC profiler, the allocation rate. The results are written as JSON to
+ * {@code target/jmh-report.json}, or to the file in the {@code benchmark.result}
+ * system property, to be compared with the results of a baseline run.
+ *
+ * <p>Only runs with the {@code jmh-benchmark} profile.</p>
+ */
+public class BenchmarkRunner {
+
+    @Test
+    public void runJmhBenchmarks() throws Exception {
+        assumeTrue("Benchmarks only run with -P jmh-benchmark", Boolean.getBoolean("benchmark.run"));
+
+        Options options = new OptionsBuilder()
+                .include(BenchmarkRunner.class.getPackage().getName() + "\\..*Benchmark\\.")
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS)
+                .warmupIterations(2)
+                .measurementIterations(5)
+                .forks(1)
+                .threads(1)
+                .shouldDoGC(true)
+                .shouldFailOnError(true)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("benchmark.result", "target/jmh-report.json"))
+                .build();
+        new Runner(options).run();
+    }
+
+}
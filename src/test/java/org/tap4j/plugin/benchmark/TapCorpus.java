@@ -0,0 +1,113 @@
+package org.tap4j.plugin.benchmark;
+
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * Generates synthetic TAP streams for the benchmarks.
+ */
+public final class TapCorpus {
+
+    public enum Shape {
+        /** Plain test lines, with some failures, skips and todos. */
+        FLAT,
+        /** Tests with subtests, three levels deep. */
+        NESTED,
+        /** Tests with YAMLish diagnostics, including durations and nested maps. */
+        YAML,
+        /** Tests with base64 encoded attachments. */
+        ATTACHMENTS
+    }
+
+    private static final int NESTED_DEPTH = 3;
+    private static final int NESTED_BREADTH = 3;
+    private static final int ATTACHMENT_SIZE = 16 * 1024;
+
+    private TapCorpus() {
+        super();
+    }
+
+    /**
+     * @param shape the kind of stream
+     * @param tests number of top-level tests
+     * @return a TAP stream
+     */
+    public static String generate(Shape shape, int tests) {
+        final StringBuilder sb = new StringBuilder();
+        final Random random = new Random(42);
+        sb.append("1..").append(tests).append('\n');
+        for (int i = 1; i <= tests; i++) {
+            switch (shape) {
+                case NESTED:
+                    appendSubtest(sb, "    ", NESTED_DEPTH);
+                    appendTest(sb, "", i);
+                    break;
+                case YAML:
+                    appendTest(sb, "", i);
+                    appendYaml(sb, i);
+                    break;
+                case ATTACHMENTS:
+                    appendTest(sb, "", i);
+                    if (i % 10 == 0) {
+                        appendAttachment(sb, i, random);
+                    }
+                    break;
+                default:
+                    appendTest(sb, "", i);
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendTest(StringBuilder sb, String indent, int number) {
+        sb.append(indent);
+        if (number % 10 == 0) {
+            sb.append("not ok ").append(number).append(" - test ").append(number).append('\n');
+        } else if (number % 20 == 1) {
+            sb.append("ok ").append(number).append(" - test ").append(number).append(" # SKIP not here\n");
+        } else if (number % 25 == 2) {
+            sb.append("not ok ").append(number).append(" - test ").append(number).append(" # TODO later\n");
+        } else {
+            sb.append("ok ").append(number).append(" - test ").append(number).append('\n');
+        }
+    }
+
+    private static void appendSubtest(StringBuilder sb, String indent, int depth) {
+        sb.append(indent).append("1..").append(NESTED_BREADTH).append('\n');
+        for (int i = 1; i <= NESTED_BREADTH; i++) {
+            if (depth > 1) {
+                appendSubtest(sb, indent + "    ", depth - 1);
+            }
+            appendTest(sb, indent, i);
+        }
+    }
+
+    private static void appendYaml(StringBuilder sb, int number) {
+        sb.append("  ---\n")
+                .append("  duration_ms: ").append(number % 100).append(".5\n")
+                .append("  message: 'test ").append(number).append(" finished'\n")
+                .append("  data:\n")
+                .append("    got: ").append(number).append('\n')
+                .append("    expected: ").append(number + 1).append('\n')
+                .append("    context:\n")
+                .append("      file: t/test.t\n")
+                .append("      line: ").append(number).append('\n')
+                .append("  ...\n");
+    }
+
+    private static void appendAttachment(StringBuilder sb, int number, Random random) {
+        final byte[] content = new byte[ATTACHMENT_SIZE];
+        random.nextBytes(content);
+        sb.append("  ---\n")
+                .append("  extensions:\n")
+                .append("    Files:\n")
+                .append("      screenshot-").append(number).append(".png:\n")
+                .append("        File-Name: screenshot-").append(number).append(".png\n")
+                .append("        File-Size: ").append(ATTACHMENT_SIZE).append('\n')
+                .append("        File-Type: image/png\n")
+                .append("        File-Content: ").append(Base64.getEncoder().encodeToString(content)).append('\n')
+                .append("  ...\n");
+    }
+
+}
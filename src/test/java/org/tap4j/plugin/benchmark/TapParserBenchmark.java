@@ -0,0 +1,82 @@
+package org.tap4j.plugin.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.tap4j.plugin.TapParser;
+import org.tap4j.plugin.model.TestSetMap;
+
+import hudson.FilePath;
+
+/**
+ * Parses a TAP file with {@link TapParser}, optionally stripping single parents
+ * or flattening the subtests.
+ */
+@State(Scope.Benchmark)
+public class TapParserBenchmark {
+
+    @Param({"FLAT", "NESTED", "YAML", "ATTACHMENTS"})
+    public TapCorpus.Shape shape;
+
+    @Param({"1000"})
+    public int tests;
+
+    private File file;
+    private FilePath[] files;
+    private PrintStream logger;
+
+    @Setup
+    public void setup() throws IOException {
+        file = File.createTempFile("benchmark", ".tap");
+        Files.write(file.toPath(), TapCorpus.generate(shape, tests).getBytes(StandardCharsets.UTF_8));
+        files = new FilePath[] { new FilePath(file) };
+        logger = new PrintStream(OutputStream.nullOutputStream());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    public List<TestSetMap> parse() throws InterruptedException {
+        return newParser(false, false).parseFiles(files);
+    }
+
+    @Benchmark
+    public List<TestSetMap> parseAndStripSingleParents() throws InterruptedException {
+        return newParser(true, false).parseFiles(files);
+    }
+
+    @Benchmark
+    public List<TestSetMap> parseAndFlatten() throws InterruptedException {
+        return newParser(false, true).parseFiles(files);
+    }
+
+    private TapParser newParser(boolean stripSingleParents, boolean flattenTheTap) {
+        return new TapParser(
+                false, // outputTapToConsole
+                true,  // enableSubtests
+                true,  // todoIsFailure
+                true,  // includeCommentDiagnostics
+                false, // validateNumberOfTests
+                true,  // planRequired
+                false, // verbose
+                stripSingleParents,
+                flattenTheTap,
+                false, // removeYamlIfCorrupted
+                logger);
+    }
+
+}
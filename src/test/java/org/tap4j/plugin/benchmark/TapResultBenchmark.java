@@ -0,0 +1,70 @@
+package org.tap4j.plugin.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.tap4j.model.TestSet;
+import org.tap4j.parser.Tap13Parser;
+import org.tap4j.plugin.TapResult;
+import org.tap4j.plugin.model.TestSetMap;
+import org.tap4j.plugin.util.Constants;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+
+/**
+ * Creates {@link TapResult}s, which normalizes the file names of the test sets,
+ * and tallies them. The results need a build, so these run with a Jenkins instance.
+ */
+@JmhBenchmark
+public class TapResultBenchmark {
+
+    public static class ResultState extends JmhBenchmarkState {
+
+        @Param({"FLAT", "NESTED", "YAML"})
+        public TapCorpus.Shape shape;
+
+        @Param({"100"})
+        public int files;
+
+        private FreeStyleBuild build;
+        private List<TestSetMap> testSets;
+
+        @Override
+        public void setup() throws Exception {
+            FreeStyleProject project = getJenkins().createProject(FreeStyleProject.class, "benchmark");
+            build = project.scheduleBuild2(0).get();
+            File tapDir = new File(build.getRootDir(), Constants.TAP_DIR_NAME);
+            TestSet testSet = new Tap13Parser("UTF-8", true, true, false).parseTapStream(TapCorpus.generate(shape, 100));
+            testSets = new ArrayList<>(files);
+            for (int i = 0; i < files; i++) {
+                testSets.add(new TestSetMap(new File(tapDir, "result-" + i + ".tap").getAbsolutePath(), testSet));
+            }
+        }
+    }
+
+    @Benchmark
+    public TapResult filter(ResultState state) {
+        return newResult(state);
+    }
+
+    /**
+     * Includes the cost of {@link #filter(ResultState)}, as a result is only tallied once.
+     */
+    @Benchmark
+    public TapResult filterAndTally(ResultState state) {
+        TapResult result = newResult(state);
+        result.tally();
+        return result;
+    }
+
+    private static TapResult newResult(ResultState state) {
+        return new TapResult("TAP Test Results", state.build, state.testSets, true, true, false);
+    }
+
+}
@@ -0,0 +1,5 @@
+/**
+ * JMH benchmarks for parsing and summarizing TAP results. Run them with
+ * {@code mvn test -P jmh-benchmark}.
+ */
+package org.tap4j.plugin.benchmark;
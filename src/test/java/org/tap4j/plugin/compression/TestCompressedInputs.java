@@ -0,0 +1,148 @@
+package org.tap4j.plugin.compression;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Objects;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+import org.tap4j.plugin.TapPublisher;
+import org.tap4j.plugin.TapResult;
+import org.tap4j.plugin.TapTestResultAction;
+import org.tap4j.plugin.model.StreamedTestSetMap;
+import org.tap4j.plugin.util.CompressionUtil;
+
+/**
+ * Tests for publishing TAP files that are already compressed in the workspace.
+ */
+public class TestCompressedInputs {
+
+    private static final String TAP = "1..3\nok 1 - a\nnot ok 2 - b\nok 3 - c # SKIP not now\n";
+
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testGzipFilesAreParsed() throws Exception {
+        final TapResult result = build(0, gzip(TAP));
+
+        assertEquals(1, result.getTestSets().size());
+        assertEquals(3, result.getSummary().getTotal());
+        assertEquals(1, result.getSummary().getFailed());
+        assertEquals(1, result.getSummary().getSkipped());
+    }
+
+    @Test
+    public void testGzipFilesAreStreamedByTheirUncompressedSize() throws Exception {
+        // compresses to much less than the 1 MB threshold
+        final StringBuilder tap = new StringBuilder("1..50000\n");
+        for (int i = 1; i <= 50000; i++) {
+            tap.append("ok ").append(i).append(" - a test with a long description\n");
+        }
+        final TapResult result = build(1, gzip(tap.toString()));
+
+        assertTrue(result.getTestSets().get(0) instanceof StreamedTestSetMap);
+        assertEquals(50000, result.getSummary().getTotal());
+    }
+
+    @Test
+    public void testUnsupportedFormatsAreParseErrors() throws Exception {
+        // xz magic bytes
+        final byte[] xz = {(byte) 0xfd, '7', 'z', 'X', 'Z', 0x00, 0x00, 0x04};
+        final TapResult result = build(0, xz);
+
+        assertTrue(result.hasParseErrors());
+        assertEquals(0, result.getTestSets().size());
+    }
+
+    @Test
+    public void testTheGzipTrailerIsOnlyTrustedForShortFiles() throws Exception {
+        final File small = tmp.newFile("small.tap");
+        Files.write(small.toPath(), gzip(TAP));
+        assertEquals(TAP.length(), CompressionUtil.getUncompressedLength(small));
+
+        // long enough to hold more than 4 GB, whatever its trailer says
+        final byte[] noise = new byte[5 * 1024 * 1024];
+        new Random(42).nextBytes(noise);
+        final File large = tmp.newFile("large.tap");
+        Files.write(large.toPath(), gzip(noise));
+        assertEquals(CompressionUtil.UNKNOWN_LENGTH, CompressionUtil.getUncompressedLength(large));
+    }
+
+    private static byte[] gzip(String tap) throws IOException {
+        return gzip(tap.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] gzip(byte[] contents) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream os = new GZIPOutputStream(bytes)) {
+            os.write(contents);
+        }
+        return bytes.toByteArray();
+    }
+
+    private TapResult build(int streamingThreshold, byte[] contents) throws Exception {
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+
+        project.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher,
+                    BuildListener listener) throws InterruptedException, IOException {
+                FilePath workspace = Objects.requireNonNull(build.getWorkspace());
+                try (OutputStream os = workspace.child("result.tap.gz").write()) {
+                    os.write(contents);
+                }
+                return true;
+            }
+        });
+
+        TapPublisher publisher = new TapPublisher(
+                "*.tap.gz", // test results
+                false, // failIfNoResults
+                false, // failedTestsMarkBuildAsFailure
+                false, // outputTapToConsole
+                true,  // enableSubtests
+                false, // discardOldReports
+                false, // todoIsFailure
+                true,  // includeCommentDiagnostics
+                false, // validateNumberOfTests
+                true,  // planRequired
+                false, // verbose
+                false, // showOnlyFailures
+                false, // stripSingleParents
+                false, // flattenTapResult
+                false, // removeYamlIfCorrupted
+                false); // skipIfBuildNotOk
+        publisher.setStreamingThreshold(streamingThreshold);
+
+        project.getPublishersList().add(publisher);
+        project.save();
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+
+        TapTestResultAction action = build.getAction(TapTestResultAction.class);
+        return action.getTapResult();
+    }
+
+}
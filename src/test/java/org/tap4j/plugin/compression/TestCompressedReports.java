@@ -0,0 +1,78 @@
+package org.tap4j.plugin.compression;
+
+import hudson.model.Result;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.tap4j.plugin.TapTestResultAction;
+import org.tap4j.plugin.util.CompressionUtil;
+import org.tap4j.plugin.util.Constants;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for storing the TAP files of a build compressed.
+ */
+public class TestCompressedReports {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testReportsAreStoredCompressed() throws Exception {
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+            "node {\n" +
+            "  writeFile file: 'a.tap', text: '1..2\\nok 1 - a\\nnot ok 2 - b\\n'\n" +
+            "  publishTap(testResults: 'a.tap', compressReports: true)\n" +
+            "}",
+            true));
+
+        WorkflowRun run = j.assertBuildStatus(Result.UNSTABLE, job.scheduleBuild2(0));
+
+        File tapFile = new File(new File(run.getRootDir(), Constants.TAP_DIR_NAME), "a.tap");
+        // the file keeps its name, only the contents are compressed
+        assertTrue(tapFile.isFile());
+        assertTrue(CompressionUtil.isGzip(tapFile));
+
+        TapTestResultAction action = run.getAction(TapTestResultAction.class);
+        assertNotNull(action);
+        assertEquals(2, action.getTotalCount());
+        assertEquals(1, action.getFailCount());
+
+        // and they are shown decompressed
+        try (JenkinsRule.WebClient wc = j.createWebClient()) {
+            String contents = wc.goTo(run.getUrl() + "tapResults/contents?f=a.tap", "text/plain")
+                    .getWebResponse().getContentAsString();
+            assertEquals("1..2\nok 1 - a\nnot ok 2 - b\n", contents);
+            // where the results page links the file
+            String page = wc.goTo(run.getUrl() + "tapResults/").getWebResponse().getContentAsString();
+            assertTrue(page.contains(run.getUrl() + "tapResults/contents?f=a.tap"));
+        }
+    }
+
+    @Test
+    public void testReportsAreNotCompressedByDefault() throws Exception {
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+            "node {\n" +
+            "  writeFile file: 'a.tap', text: '1..1\\nok 1 - a\\n'\n" +
+            "  publishTap(testResults: 'a.tap')\n" +
+            "}",
+            true));
+
+        WorkflowRun run = j.buildAndAssertSuccess(job);
+
+        File tapFile = new File(new File(run.getRootDir(), Constants.TAP_DIR_NAME), "a.tap");
+        assertTrue(tapFile.isFile());
+        assertFalse(CompressionUtil.isGzip(tapFile));
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Tests for storing the TAP files of a build compressed.
+ */
+package org.tap4j.plugin.compression;
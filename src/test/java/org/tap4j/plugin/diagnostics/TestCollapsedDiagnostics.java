@@ -0,0 +1,64 @@
+package org.tap4j.plugin.diagnostics;
+
+import hudson.model.Result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.htmlunit.Page;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.tap4j.plugin.util.DiagnosticRows;
+
+/**
+ * Tests for the YAML diagnostics collapsed in the TAP Extended Test Results page.
+ */
+public class TestCollapsedDiagnostics {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testLargeDiagnosticsAreLoadedWhenExpanded() throws Exception {
+        final StringBuilder tap = new StringBuilder("1..2\\n");
+        tap.append("not ok 1 - small\\n  ---\\n  message: small failure\\n  ...\\n");
+        tap.append("not ok 2 - large\\n  ---\\n");
+        for (int i = 0; i <= DiagnosticRows.COLLAPSE_ROWS; i++) {
+            tap.append("  key").append(i).append(": value").append(i).append("\\n");
+        }
+        tap.append("  ...\\n");
+
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+            "node {\n" +
+            "  writeFile file: 'result.tap', text: '" + tap + "'\n" +
+            "  publishTap(testResults: 'result.tap')\n" +
+            "}",
+            true));
+        WorkflowRun run = j.buildAndAssertStatus(Result.UNSTABLE, job);
+
+        try (JenkinsRule.WebClient wc = j.createWebClient()) {
+            wc.setThrowExceptionOnFailingStatusCode(false);
+
+            // the small diagnostic is shown, the large one only when expanded
+            String lines = wc.goTo(run.getUrl() + "tapResults/lines?file=0", "text/html")
+                    .getWebResponse().getContentAsString();
+            assertTrue(lines.contains("small failure"));
+            assertFalse(lines.contains("value0"));
+            assertTrue(lines.contains("diagnostic?file=0&amp;line=1"));
+
+            String diagnostic = wc.goTo(run.getUrl() + "tapResults/diagnostic?file=0&line=1", "text/html")
+                    .getWebResponse().getContentAsString();
+            assertTrue(diagnostic.contains("value0"));
+            assertTrue(diagnostic.contains("value" + DiagnosticRows.COLLAPSE_ROWS));
+
+            Page missing = wc.goTo(run.getUrl() + "tapResults/diagnostic?file=0&line=5", null);
+            assertEquals(404, missing.getWebResponse().getStatusCode());
+        }
+    }
+}
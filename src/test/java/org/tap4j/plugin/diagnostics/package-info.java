@@ -0,0 +1,4 @@
+/**
+ * Tests for the YAML diagnostics of the TAP Extended Test Results page.
+ */
+package org.tap4j.plugin.diagnostics;
@@ -0,0 +1,165 @@
+package org.tap4j.plugin.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.Result;
+import java.io.File;
+import java.util.Collections;
+import net.sf.json.JSONObject;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.tap4j.model.TestResult;
+import org.tap4j.model.TestSet;
+import org.tap4j.plugin.TapBuildAction;
+import org.tap4j.plugin.TapResult;
+import org.tap4j.plugin.TapResultDiff;
+import org.tap4j.plugin.model.TestSetMap;
+import org.tap4j.plugin.util.Constants;
+import org.tap4j.util.StatusValues;
+
+/**
+ * Tests for the {@link TapResultDiff}, {@code tapResults/diff}.
+ */
+public class TestResultDiff {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testTestsAreClassified() throws Exception {
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+            "node {\n" +
+            "  if (currentBuild.number == 1) {\n" +
+            "    writeFile file: 'a.tap', text: '1..5\\nok 1 - same\\nnot ok 2 - fixed\\nnot ok 3 - still\\n" +
+            "ok 4 - broken\\nok 5 - removed\\n'\n" +
+            "  } else {\n" +
+            // the tests are matched by description, not by number
+            "    writeFile file: 'a.tap', text: '1..5\\nok 1 - added\\nok 2 - same\\nok 3 - fixed\\n" +
+            "not ok 4 - still\\nnot ok 5 - broken\\n'\n" +
+            "  }\n" +
+            "  publishTap(testResults: 'a.tap')\n" +
+            "}",
+            true));
+        WorkflowRun first = j.buildAndAssertStatus(Result.UNSTABLE, job);
+        WorkflowRun second = j.buildAndAssertStatus(Result.UNSTABLE, job);
+
+        TapResultDiff diff = first.getAction(TapBuildAction.class).getResult().getDiff();
+        assertNull(diff.getPreviousBuild());
+        assertEquals(5, diff.getAdded().getCount());
+
+        diff = second.getAction(TapBuildAction.class).getResult().getDiff();
+        assertEquals(first, diff.getPreviousBuild());
+        assertDescriptions(diff.getNewFailures(), "- broken");
+        assertDescriptions(diff.getFixed(), "- fixed");
+        assertDescriptions(diff.getStillFailing(), "- still");
+        assertDescriptions(diff.getAdded(), "- added");
+        assertDescriptions(diff.getRemoved(), "- removed");
+        assertEquals(1, diff.getUnchanged());
+        assertEquals("passed", diff.getFixed().getTests().get(0).getStatus());
+        assertEquals("failed", diff.getFixed().getTests().get(0).getPreviousStatus());
+
+        try (JenkinsRule.WebClient wc = j.createWebClient()) {
+            JSONObject api = JSONObject.fromObject(wc.goTo(second.getUrl() + "tapResults/diff/api/json",
+                    "application/json").getWebResponse().getContentAsString());
+            assertEquals(first.getNumber(), api.getInt("previousBuildNumber"));
+            JSONObject newFailures = api.getJSONObject("newFailures");
+            assertEquals(1, newFailures.getInt("count"));
+            assertEquals(5, newFailures.getJSONArray("tests").getJSONObject(0).getInt("number"));
+
+            assertTrue(wc.goTo(second.getUrl() + "tapResults/diff/").asNormalizedText().contains("New failures (1)"));
+        }
+    }
+
+    @Test
+    public void testBuildsWithoutResultsAreSkipped() throws Exception {
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+            "node {\n" +
+            "  if (currentBuild.number == 1) {\n" +
+            "    writeFile file: 'a.tap', text: '1..1\\nnot ok 1 - fixed\\n'\n" +
+            "    publishTap(testResults: 'a.tap')\n" +
+            "  } else if (currentBuild.number == 3) {\n" +
+            "    writeFile file: 'a.tap', text: '1..1\\nok 1 - fixed\\n'\n" +
+            "    publishTap(testResults: 'a.tap')\n" +
+            "  }\n" +
+            "}",
+            true));
+        WorkflowRun first = j.buildAndAssertStatus(Result.UNSTABLE, job);
+        j.buildAndAssertSuccess(job);
+        WorkflowRun third = j.buildAndAssertSuccess(job);
+
+        TapResultDiff diff = third.getAction(TapBuildAction.class).getResult().getDiff();
+        assertEquals(first, diff.getPreviousBuild());
+        assertDescriptions(diff.getFixed(), "- fixed");
+    }
+
+    @Test
+    public void testTestsOnlyMissingFromStreamedFilesAreNotCompared() throws Exception {
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+            "node {\n" +
+            "  if (currentBuild.number == 1) {\n" +
+            "    writeFile file: 'a.tap', text: '1..2\\nnot ok 1 - fixed\\nok 2 - passing\\n'\n" +
+            "  } else {\n" +
+            // over the 1 MB threshold, only the failed tests are kept
+            "    writeFile file: 'a.tap', text: '1..100003\\nok 1 - fixed\\nok 2 - passing\\nnot ok 3 - broken\\n' +\n" +
+            "        'ok - padding\\n' * 100000\n" +
+            "  }\n" +
+            "  publishTap(testResults: 'a.tap', streamingThreshold: 1)\n" +
+            "}",
+            true));
+        j.buildAndAssertStatus(Result.UNSTABLE, job);
+        WorkflowRun second = j.buildAndAssertStatus(Result.UNSTABLE, job);
+
+        TapResult result = second.getAction(TapBuildAction.class).getResult();
+        TapResultDiff diff = result.getDiff();
+        // kept while the previous build is the same
+        assertSame(diff, result.getDiff());
+        assertDescriptions(diff.getAdded(), "- broken");
+        assertEquals(0, diff.getRemoved().getCount());
+        assertEquals(0, diff.getFixed().getCount());
+        assertDescriptions(diff.getNotCompared(), "- fixed", "- passing");
+        assertNull(diff.getNotCompared().getTests().get(0).getStatus());
+        assertEquals("failed", diff.getNotCompared().getTests().get(0).getPreviousStatus());
+    }
+
+    @Test
+    public void testOnlyTheFirstTestsOfEachGroupAreKept() throws Exception {
+        FreeStyleBuild build = j.buildAndAssertSuccess(j.createFreeStyleProject());
+        final int total = TapResultDiff.MAX_TESTS + 50;
+        TestSet testSet = new TestSet();
+        for (int i = 1; i <= total; i++) {
+            TestResult testResult = new TestResult(StatusValues.OK, i);
+            testResult.setDescription("- test " + i);
+            testSet.addTestResult(testResult);
+        }
+        File file = new File(new File(build.getRootDir(), Constants.TAP_DIR_NAME), "a.tap");
+        TapResult result = new TapResult("TAP Test Results", build,
+                Collections.singletonList(new TestSetMap(file.getAbsolutePath(), testSet)), true, true, false);
+
+        TapResultDiff.Group added = new TapResultDiff(build, result, null, null).getAdded();
+        assertEquals(total, added.getCount());
+        assertEquals(TapResultDiff.MAX_TESTS, added.getTests().size());
+        assertTrue(added.isTruncated());
+        // in the order of the report, not of the hashes
+        for (int i = 0; i < TapResultDiff.MAX_TESTS; i++) {
+            assertEquals(Integer.valueOf(i + 1), added.getTests().get(i).getNumber());
+        }
+    }
+
+    private static void assertDescriptions(TapResultDiff.Group group, String... descriptions) {
+        assertEquals(descriptions.length, group.getCount());
+        for (int i = 0; i < descriptions.length; i++) {
+            assertEquals(descriptions[i], group.getTests().get(i).getDescription());
+        }
+    }
+}
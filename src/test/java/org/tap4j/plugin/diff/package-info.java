@@ -0,0 +1,4 @@
+/**
+ * Tests for the differences between the TAP results of two builds.
+ */
+package org.tap4j.plugin.diff;
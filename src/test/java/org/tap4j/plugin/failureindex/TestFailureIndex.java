@@ -0,0 +1,67 @@
+package org.tap4j.plugin.failureindex;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import hudson.model.Result;
+import hudson.tasks.test.TestResult;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.tap4j.plugin.TapResult;
+import org.tap4j.plugin.TapTestResultAction;
+import org.tap4j.plugin.model.TapStreamResult;
+
+import java.util.List;
+
+/**
+ * Tests for the index of the failed tests of a TAP result.
+ */
+public class TestFailureIndex {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testFailedTestsFollowTheCounters() throws Exception {
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+            "node {\n" +
+            "  writeFile file: 'a.tap', text: '1..4\\nnot ok 1 failed\\nnot ok 2 skipped # SKIP\\n" +
+            "not ok 3 todo # TODO\\nok 4 passed\\n'\n" +
+            "  writeFile file: 'b.tap', text: '1..1\\nok 1 - passed\\n'\n" +
+            "  writeFile file: 'c.tap', text: '1..2\\nok 1 - passed\\nnot ok 2 also failed\\n'\n" +
+            "  publishTap(testResults: '*.tap', todoIsFailure: false)\n" +
+            "}",
+            true));
+        WorkflowRun run = j.buildAndAssertStatus(Result.UNSTABLE, job);
+
+        TapTestResultAction action = run.getAction(TapTestResultAction.class);
+        TapResult tapResult = action.getTapResult();
+        int[][] index = tapResult.getFailureIndex();
+        assertEquals(3, index.length);
+        assertArrayEquals(new int[] {0}, index[0]);
+        assertArrayEquals(new int[0], index[1]);
+        assertArrayEquals(new int[] {1}, index[2]);
+
+        // skipped and TODO tests are not listed as failures
+        TapStreamResult streamResult = action.getResult();
+        List<TestResult> failed = streamResult.getFailedTests2();
+        assertEquals(streamResult.getFailCount(), failed.size());
+        assertEquals("1 - failed", failed.get(0).getName());
+        assertEquals("2 - also failed", failed.get(1).getName());
+
+        try (JenkinsRule.WebClient wc = j.createWebClient()) {
+            JSONObject api = JSONObject.fromObject(wc.goTo(run.getUrl() + "tapTestReport/api/json?tree=failures[name,status]",
+                    "application/json").getWebResponse().getContentAsString());
+            JSONArray failures = api.getJSONArray("failures");
+            assertEquals(2, failures.size());
+            assertEquals("NOT OK", failures.getJSONObject(0).getString("status"));
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Tests for the index of the failed tests of a TAP result.
+ */
+package org.tap4j.plugin.failureindex;
@@ -0,0 +1,112 @@
+package org.tap4j.plugin.live;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import hudson.model.Result;
+
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.tap4j.plugin.TapTestResultAction;
+
+/**
+ * Tests for the tapLive step.
+ */
+public class TestTapLiveStep {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testLiveResultsAreShownWhileTheBlockRuns() throws Exception {
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+            "node {\n" +
+            "  writeFile file: 'live.tap', text: '1..3\\nok 1 - first\\nnot ok 2 - second\\n'\n" +
+            "  tapLive(file: 'live.tap', pollInterval: 1) {\n" +
+            "    sleep 5\n" +
+            "    writeFile file: 'live.tap', text: '1..3\\nok 1 - first\\nnot ok 2 - second\\nnot ok 3 - third\\n'\n" +
+            "    sleep 5\n" +
+            "  }\n" +
+            "  publishTap(testResults: 'live.tap')\n" +
+            "}",
+            true));
+
+        WorkflowRun run = job.scheduleBuild2(0).waitForStart();
+        j.waitForMessage("TAP live: 1 failure(s) in 2 test(s) so far", run);
+
+        TapTestResultAction action = run.getAction(TapTestResultAction.class);
+        assertTrue(action.isLive());
+        assertEquals(1, action.getFailCount());
+        assertEquals(2, action.getTotalCount());
+        assertEquals(1, action.getResult().getFailedTests().size());
+
+        j.assertBuildStatus(Result.UNSTABLE, j.waitForCompletion(run));
+        j.assertLogContains("TAP live: 2 failure(s) in 3 test(s) so far", run);
+
+        // the published results replace the live results
+        action = run.getAction(TapTestResultAction.class);
+        assertFalse(action.isLive());
+        assertEquals(2, action.getFailCount());
+        assertEquals(3, action.getTotalCount());
+    }
+
+    @Test
+    public void testLiveResultsAreNotStored() throws Exception {
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+            "node {\n" +
+            "  writeFile file: 'live.tap', text: '1..1\\nnot ok 1 - first\\n'\n" +
+            "  tapLive(file: 'live.tap', pollInterval: 1) {\n" +
+            "    sleep 3\n" +
+            "  }\n" +
+            "}",
+            true));
+
+        WorkflowRun run = j.buildAndAssertSuccess(job);
+        j.assertLogContains("TAP live: 1 failure(s) in 1 test(s) so far", run);
+        assertNull(run.getAction(TapTestResultAction.class));
+    }
+
+    @Test
+    public void testBacklogsLargerThanAChunkAreReadAtOnce() throws Exception {
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+            "node {\n" +
+            // about 11 MB, more than two chunks
+            "  writeFile file: 'live.tap', text: 'not ok - failed\\n' * 700000\n" +
+            "  tapLive(file: 'live.tap', pollInterval: 600) {\n" +
+            "    sleep 1\n" +
+            "  }\n" +
+            "}",
+            true));
+
+        WorkflowRun run = j.buildAndAssertSuccess(job);
+        j.assertLogContains("TAP live: 700000 failure(s) in 700000 test(s) so far", run);
+    }
+
+    @Test
+    public void testAbortingTheBuildStopsTheBlock() throws Exception {
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+            "node {\n" +
+            "  writeFile file: 'live.tap', text: '1..1\\nnot ok 1 - first\\n'\n" +
+            "  tapLive(file: 'live.tap', pollInterval: 1) {\n" +
+            "    sleep 600\n" +
+            "  }\n" +
+            "}",
+            true));
+
+        WorkflowRun run = job.scheduleBuild2(0).waitForStart();
+        j.waitForMessage("TAP live: 1 failure(s) in 1 test(s) so far", run);
+        run.doStop();
+        j.assertBuildStatus(Result.ABORTED, j.waitForCompletion(run));
+        assertNull(run.getAction(TapTestResultAction.class));
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Tests for following a TAP file while the build runs.
+ */
+package org.tap4j.plugin.live;
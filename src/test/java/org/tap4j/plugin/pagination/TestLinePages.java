@@ -0,0 +1,133 @@
+package org.tap4j.plugin.pagination;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import org.htmlunit.Page;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+import org.tap4j.plugin.TapPublisher;
+import org.tap4j.plugin.TapResult;
+import org.tap4j.plugin.TapTestResultAction;
+
+/**
+ * Tests for the pages of TAP lines of the TAP Extended Test Results page.
+ */
+public class TestLinePages {
+
+    private static final int NUMBER_OF_TESTS = 250;
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testLinesArePaged() throws Exception {
+        final FreeStyleBuild build = build(false);
+        final TapResult result = build.getAction(TapTestResultAction.class).getTapResult();
+
+        TapResult.LinePage page = result.getLinePage("0", null, null);
+        assertNotNull(page);
+        assertEquals(TapResult.DEFAULT_PAGE_SIZE, page.getLines().size());
+        assertEquals(NUMBER_OF_TESTS, page.getTotal());
+        assertTrue(page.hasMore());
+
+        page = result.getLinePage("0", "200", "100");
+        assertEquals(50, page.getLines().size());
+        assertFalse(page.hasMore());
+
+        assertNull(result.getLinePage("1", null, null));
+        assertNull(result.getLinePage("x", null, null));
+    }
+
+    @Test
+    public void testOnlyFailuresArePaged() throws Exception {
+        final FreeStyleBuild build = build(true);
+        final TapResult result = build.getAction(TapTestResultAction.class).getTapResult();
+
+        // every fifth test fails
+        final TapResult.LinePage page = result.getLinePage("0", "0", "1000");
+        assertEquals(NUMBER_OF_TESTS / 5, page.getTotal());
+        assertEquals(NUMBER_OF_TESTS / 5, page.getLines().size());
+    }
+
+    @Test
+    public void testReportPageLoadsTheLinesOnDemand() throws Exception {
+        final FreeStyleBuild build = build(false);
+
+        try (JenkinsRule.WebClient wc = j.createWebClient()) {
+            wc.setThrowExceptionOnFailingStatusCode(false);
+            wc.getOptions().setJavaScriptEnabled(false);
+
+            // the report shows only the summary of each file
+            String report = wc.goTo(build.getUrl() + "tapResults/").getWebResponse().getContentAsString();
+            assertTrue(report.contains("250 tests, 200 ok, 50 not ok"));
+            assertFalse(report.contains("test 001"));
+
+            String lines = wc.goTo(build.getUrl() + "tapResults/lines?file=0&offset=100&limit=100", "text/html")
+                    .getWebResponse().getContentAsString();
+            assertTrue(lines.contains("test 101"));
+            assertFalse(lines.contains("test 100"));
+            assertTrue(lines.contains("Show 50 more"));
+
+            Page missing = wc.goTo(build.getUrl() + "tapResults/lines?file=3", null);
+            assertEquals(404, missing.getWebResponse().getStatusCode());
+        }
+    }
+
+    private FreeStyleBuild build(boolean showOnlyFailures) throws Exception {
+        FreeStyleProject project = j.createFreeStyleProject();
+
+        project.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher,
+                    BuildListener listener) throws InterruptedException, IOException {
+                final StringBuilder tap = new StringBuilder("1..").append(NUMBER_OF_TESTS).append('\n');
+                for (int i = 1; i <= NUMBER_OF_TESTS; i++) {
+                    tap.append(i % 5 == 0 ? "not ok " : "ok ").append(i)
+                            .append(String.format(" - test %03d\n", i));
+                }
+                FilePath workspace = Objects.requireNonNull(build.getWorkspace());
+                workspace.child("result.tap").write(tap.toString(), "UTF-8");
+                return true;
+            }
+        });
+
+        TapPublisher publisher = new TapPublisher(
+                "result.tap", // test results
+                true,  // failIfNoResults
+                false, // failedTestsMarkBuildAsFailure
+                false, // outputTapToConsole
+                true,  // enableSubtests
+                false, // discardOldReports
+                true,  // todoIsFailure
+                true,  // includeCommentDiagnostics
+                false, // validateNumberOfTests
+                true,  // planRequired
+                false, // verbose
+                showOnlyFailures, // showOnlyFailures
+                false, // stripSingleParents
+                false, // flattenTapResult
+                false, // removeYamlIfCorrupted
+                false); // skipIfBuildNotOk
+
+        project.getPublishersList().add(publisher);
+        project.save();
+        return project.scheduleBuild2(0).get();
+    }
+
+}
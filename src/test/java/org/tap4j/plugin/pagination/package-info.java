@@ -0,0 +1,4 @@
+/**
+ * Tests for the pages of TAP lines of the TAP Extended Test Results page.
+ */
+package org.tap4j.plugin.pagination;
@@ -0,0 +1,138 @@
+package org.tap4j.plugin.parallelparsing;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+import org.tap4j.plugin.TapParser;
+import org.tap4j.plugin.TapPublisher;
+import org.tap4j.plugin.TapResult;
+import org.tap4j.plugin.TapTestResultAction;
+import org.tap4j.plugin.model.TestSetMap;
+
+/**
+ * Tests for the parser threads configuration option.
+ */
+public class TestParallelParsing {
+
+    private static final int NUMBER_OF_FILES = 20;
+
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testParallelParsingKeepsFileOrder() throws Exception {
+        FreeStyleProject project = jenkins.createProject(FreeStyleProject.class, "parallel-parsing");
+
+        project.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher,
+                    BuildListener listener) throws InterruptedException, IOException {
+                FilePath workspace = Objects.requireNonNull(build.getWorkspace());
+                for (int i = 0; i < NUMBER_OF_FILES; i++) {
+                    String status = i % 5 == 0 ? "not ok" : "ok";
+                    workspace.child("result-" + i + ".tap").write("1..2\nok 1 - first\n" + status + " 2 - second\n", "UTF-8");
+                }
+                // missing plan, while the plan is required
+                workspace.child("broken.tap").write("ok 1 - first\n", "UTF-8");
+                return true;
+            }
+        });
+
+        TapPublisher publisher = new TapPublisher(
+                "*.tap", // test results
+                true,  // failIfNoResults
+                false, // failedTestsMarkBuildAsFailure
+                false, // outputTapToConsole
+                true,  // enableSubtests
+                false, // discardOldReports
+                true,  // todoIsFailure
+                true,  // includeCommentDiagnostics
+                false, // validateNumberOfTests
+                true,  // planRequired
+                false, // verbose
+                false, // showOnlyFailures
+                false, // stripSingleParents
+                false, // flattenTapResult
+                false, // removeYamlIfCorrupted
+                false); // skipIfBuildNotOk
+        publisher.setParseThreads(4);
+
+        project.getPublishersList().add(publisher);
+        project.save();
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+
+        TapTestResultAction action = build.getAction(TapTestResultAction.class);
+        TapResult testResult = action.getTapResult();
+
+        assertEquals(NUMBER_OF_FILES * 2, testResult.getTotal());
+        assertEquals(NUMBER_OF_FILES / 5, testResult.getFailed());
+        assertTrue(testResult.hasParseErrors());
+
+        List<String> expectedOrder = new ArrayList<>();
+        for (FilePath report : TapPublisher.getReportsDirectory(build).list("*.tap")) {
+            if (!report.getName().equals("broken.tap")) {
+                expectedOrder.add(report.getName());
+            }
+        }
+        List<String> actualOrder = new ArrayList<>();
+        for (TestSetMap testSetMap : testResult.getTestSets()) {
+            actualOrder.add(testSetMap.getFileName());
+        }
+        assertEquals(expectedOrder, actualOrder);
+    }
+
+    @Test
+    public void testInterruptedParsingReturnsNothing() throws Exception {
+        FilePath[] files = new FilePath[NUMBER_OF_FILES];
+        for (int i = 0; i < NUMBER_OF_FILES; i++) {
+            files[i] = new FilePath(tmp.newFile("result-" + i + ".tap"));
+            files[i].write("1..1\nok 1 - first\n", "UTF-8");
+        }
+        TapParser parser = new TapParser(
+                false, // outputTapToConsole
+                true,  // enableSubtests
+                true,  // todoIsFailure
+                true,  // includeCommentDiagnostics
+                false, // validateNumberOfTests
+                true,  // planRequired
+                false, // verbose
+                false, // stripSingleParents
+                false, // flattenTapResult
+                false, // removeYamlIfCorrupted
+                System.out);
+        parser.setParseThreads(4);
+
+        // as when the build is aborted
+        Thread.currentThread().interrupt();
+        try {
+            parser.parseFiles(files);
+            fail("the files parsed so far were returned");
+        } catch (InterruptedException e) {
+            // expected
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Tests for parsing the TAP files in parallel.
+ */
+package org.tap4j.plugin.parallelparsing;
\ No newline at end of file
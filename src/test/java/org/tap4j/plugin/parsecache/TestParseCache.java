@@ -0,0 +1,52 @@
+package org.tap4j.plugin.parsecache;
+
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+/**
+ * Tests for the cache of the TAP files parsed in a build.
+ */
+public class TestParseCache {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testFilesPublishedAgainAreNotParsedAgain() throws Exception {
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+            "node {\n" +
+            "  writeFile file: 'a.tap', text: '1..1\\nok 1 - a\\n'\n" +
+            "  publishTap(testResults: 'a.tap')\n" +
+            "  writeFile file: 'b.tap', text: '1..1\\nok 1 - b\\n'\n" +
+            "  publishTap(testResults: '*.tap')\n" +
+            "}",
+            true));
+
+        WorkflowRun run = j.buildAndAssertSuccess(job);
+
+        j.assertLogContains("Parsing TAP test result [", run);
+        j.assertLogContains("Reusing the parsed TAP test result of [", run);
+    }
+
+    @Test
+    public void testChangedFilesAreParsedAgain() throws Exception {
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+            "node {\n" +
+            "  writeFile file: 'a.tap', text: '1..1\\nok 1 - a\\n'\n" +
+            "  publishTap(testResults: 'a.tap')\n" +
+            "  writeFile file: 'a.tap', text: '1..1\\nok 1 - changed\\n'\n" +
+            "  publishTap(testResults: 'a.tap')\n" +
+            "}",
+            true));
+
+        WorkflowRun run = j.buildAndAssertSuccess(job);
+
+        j.assertLogNotContains("Reusing the parsed TAP test result of [", run);
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Tests for reusing the TAP files already saved and parsed in a build.
+ */
+package org.tap4j.plugin.parsecache;
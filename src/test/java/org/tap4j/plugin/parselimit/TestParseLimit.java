@@ -0,0 +1,55 @@
+package org.tap4j.plugin.parselimit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.tap4j.plugin.TapPublisher;
+import org.tap4j.plugin.TapTestResultAction;
+
+/**
+ * Tests for the limit of TAP parses in the controller.
+ */
+public class TestParseLimit {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testGlobalConfigurationIsKept() throws Exception {
+        TapPublisher.DescriptorImpl descriptor = j.jenkins.getDescriptorByType(TapPublisher.DescriptorImpl.class);
+        descriptor.setMaxConcurrentParses(2);
+        descriptor.setParseHeapAdmission(false);
+
+        j.configRoundtrip();
+
+        assertEquals(2, descriptor.getMaxConcurrentParses());
+        assertFalse(descriptor.getParseHeapAdmission());
+    }
+
+    @Test
+    public void testParserSlotIsReleased() throws Exception {
+        TapPublisher.DescriptorImpl descriptor = j.jenkins.getDescriptorByType(TapPublisher.DescriptorImpl.class);
+        descriptor.setMaxConcurrentParses(1);
+
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+            "node {\n" +
+            "  writeFile file: 'a.tap', text: '1..1\\nok 1 - a\\n'\n" +
+            "  writeFile file: 'b.tap', text: '1..1\\nok 1 - b\\n'\n" +
+            "  publishTap(testResults: 'a.tap')\n" +
+            "  publishTap(testResults: 'b.tap')\n" +
+            "}",
+            true));
+
+        WorkflowRun run = j.buildAndAssertSuccess(job);
+
+        // the second publisher got the only slot after the first one
+        assertEquals(2, run.getAction(TapTestResultAction.class).getTotalCount());
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Tests for the limit of TAP parses in the controller.
+ */
+package org.tap4j.plugin.parselimit;
@@ -0,0 +1,117 @@
+package org.tap4j.plugin.parseonagent;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.slaves.DumbSlave;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+import org.tap4j.plugin.TapPublisher;
+import org.tap4j.plugin.TapResult;
+import org.tap4j.plugin.TapTestResultAction;
+
+/**
+ * Tests for the parse on agent configuration option.
+ */
+public class TestParseOnAgent {
+
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Test
+    public void testParseOnAgent() throws Exception {
+        DumbSlave agent = jenkins.createOnlineSlave();
+        FreeStyleProject project = jenkins.createProject(FreeStyleProject.class, "parse-on-agent");
+        project.setAssignedLabel(agent.getSelfLabel());
+
+        project.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher,
+                    BuildListener listener) throws InterruptedException, IOException {
+                FilePath workspace = Objects.requireNonNull(build.getWorkspace());
+                workspace.child("results/first.tap").write("1..2\n  1..2\n  ok 1 .1\n  ok 2 .2\nok 1 1\nnot ok 2 2\n", "UTF-8");
+                workspace.child("results/second.tap").write("ok 1 - no plan\n", "UTF-8");
+                return true;
+            }
+        });
+
+        TapPublisher publisher = new TapPublisher(
+                "results/*.tap", // test results
+                true,  // failIfNoResults
+                false, // failedTestsMarkBuildAsFailure
+                false, // outputTapToConsole
+                true,  // enableSubtests
+                false, // discardOldReports
+                true,  // todoIsFailure
+                true,  // includeCommentDiagnostics
+                false, // validateNumberOfTests
+                true,  // planRequired
+                false, // verbose
+                false, // showOnlyFailures
+                false, // stripSingleParents
+                true,  // flattenTapResult
+                false, // removeYamlIfCorrupted
+                false); // skipIfBuildNotOk
+        publisher.setParseOnAgent(true);
+
+        project.getPublishersList().add(publisher);
+        project.save();
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+
+        TapTestResultAction action = build.getAction(TapTestResultAction.class);
+        TapResult testResult = action.getTapResult();
+
+        // flattened in the agent: .1, .2 and 2
+        assertEquals(3, testResult.getTotal());
+        assertEquals(1, testResult.getFailed());
+        assertEquals(1, testResult.getTestSets().size());
+        assertEquals("results/first.tap", testResult.getTestSets().get(0).getFileName());
+
+        assertTrue(testResult.hasParseErrors());
+        assertEquals("results/second.tap", testResult.getParseErrorTestSets().get(0).getFileName());
+        assertTrue(TapPublisher.getReportsDirectory(build).child("results/first.tap").exists());
+    }
+
+    @Test
+    public void testBothModesParseOnlyTheReportsFoundByEachPublish() throws Exception {
+        for (boolean parseOnAgent : new boolean[] {false, true}) {
+            WorkflowJob job = jenkins.createProject(WorkflowJob.class, "two-publishes-" + parseOnAgent);
+            job.setDefinition(new CpsFlowDefinition(
+                "node {\n" +
+                "  dir('first') {\n" +
+                "    writeFile file: 'a.tap', text: '1..2\\nok 1\\nnot ok 2\\n'\n" +
+                "    publishTap(testResults: '*.tap', parseOnAgent: " + parseOnAgent + ")\n" +
+                "  }\n" +
+                // the pattern also matches a.tap, already saved in the build
+                "  dir('second') {\n" +
+                "    writeFile file: 'b.tap', text: '1..1\\nok 1\\n'\n" +
+                "    publishTap(testResults: '*.tap', parseOnAgent: " + parseOnAgent + ")\n" +
+                "  }\n" +
+                "}",
+                true));
+            WorkflowRun run = jenkins.buildAndAssertStatus(Result.UNSTABLE, job);
+
+            TapResult testResult = run.getAction(TapTestResultAction.class).getTapResult();
+            assertEquals("parseOnAgent: " + parseOnAgent, 3, testResult.getTotal());
+            assertEquals("parseOnAgent: " + parseOnAgent, 1, testResult.getFailed());
+            assertEquals("parseOnAgent: " + parseOnAgent, 2, testResult.getTestSets().size());
+        }
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Tests for parsing the TAP files in the agent.
+ */
+package org.tap4j.plugin.parseonagent;
\ No newline at end of file
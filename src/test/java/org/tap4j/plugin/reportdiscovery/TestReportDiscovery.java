@@ -0,0 +1,169 @@
+package org.tap4j.plugin.reportdiscovery;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.slaves.DumbSlave;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Objects;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+import org.tap4j.plugin.TapPublisher;
+import org.tap4j.plugin.TapResult;
+import org.tap4j.plugin.TapTestResultAction;
+
+/**
+ * Tests for finding the TAP files, and discarding the old ones, in the agent.
+ */
+public class TestReportDiscovery {
+
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Test
+    public void testOldReportsAreDiscardedInTheAgent() throws Exception {
+        DumbSlave agent = jenkins.createOnlineSlave();
+        FreeStyleProject project = jenkins.createProject(FreeStyleProject.class, "report-discovery");
+        project.setAssignedLabel(agent.getSelfLabel());
+
+        project.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher,
+                    BuildListener listener) throws InterruptedException, IOException {
+                FilePath workspace = Objects.requireNonNull(build.getWorkspace());
+                workspace.child("results/new.tap").write("1..2\nok 1\nnot ok 2\n", "UTF-8");
+                workspace.child("results/nested/new.tap").write("1..1\nok 1\n", "UTF-8");
+                FilePath old = workspace.child("results/old.tap");
+                old.write("1..1\nok 1\n", "UTF-8");
+                old.touch(build.getTimestamp().getTimeInMillis() - 3600 * 1000L);
+                return true;
+            }
+        });
+
+        TapPublisher publisher = new TapPublisher(
+                "results/**/*.tap", // test results
+                true,  // failIfNoResults
+                false, // failedTestsMarkBuildAsFailure
+                false, // outputTapToConsole
+                true,  // enableSubtests
+                true,  // discardOldReports
+                true,  // todoIsFailure
+                true,  // includeCommentDiagnostics
+                false, // validateNumberOfTests
+                true,  // planRequired
+                false, // verbose
+                false, // showOnlyFailures
+                false, // stripSingleParents
+                false, // flattenTapResult
+                false, // removeYamlIfCorrupted
+                false); // skipIfBuildNotOk
+
+        project.getPublishersList().add(publisher);
+        project.save();
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+
+        jenkins.assertLogContains("results/old.tap was last modified before this build started. Ignoring it.", build);
+
+        TapTestResultAction action = build.getAction(TapTestResultAction.class);
+        TapResult testResult = action.getTapResult();
+        assertEquals(3, testResult.getTotal());
+        assertEquals(1, testResult.getFailed());
+        assertEquals(2, testResult.getTestSets().size());
+
+        // the directory structure is kept in the build
+        FilePath tapDir = TapPublisher.getReportsDirectory(build);
+        assertTrue(tapDir.child("results/new.tap").exists());
+        assertTrue(tapDir.child("results/nested/new.tap").exists());
+        assertTrue(!tapDir.child("results/old.tap").exists());
+    }
+
+    @Test
+    public void testReportsAreSavedWithTheSameLayout() throws Exception {
+        DumbSlave agent = jenkins.createOnlineSlave();
+        FreeStyleProject project = jenkins.createProject(FreeStyleProject.class, "report-layout");
+        project.setAssignedLabel(agent.getSelfLabel());
+
+        final String[] names = {"a.tap", "module/b.tap", "module/deep/c.tap", "with space.tap", "with,comma.tap"};
+        project.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher,
+                    BuildListener listener) throws InterruptedException, IOException {
+                FilePath workspace = Objects.requireNonNull(build.getWorkspace());
+                for (String name : names) {
+                    workspace.child("results/" + name).write("1..1\nok 1 - " + name + "\n", "UTF-8");
+                }
+                return true;
+            }
+        });
+
+        TapPublisher publisher = new TapPublisher(
+                "results/**/*.tap", // test results
+                true,  // failIfNoResults
+                false, // failedTestsMarkBuildAsFailure
+                false, // outputTapToConsole
+                true,  // enableSubtests
+                false, // discardOldReports
+                true,  // todoIsFailure
+                true,  // includeCommentDiagnostics
+                false, // validateNumberOfTests
+                true,  // planRequired
+                false, // verbose
+                false, // showOnlyFailures
+                false, // stripSingleParents
+                false, // flattenTapResult
+                false, // removeYamlIfCorrupted
+                false); // skipIfBuildNotOk
+
+        project.getPublishersList().add(publisher);
+        project.save();
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+
+        FilePath tapDir = TapPublisher.getReportsDirectory(build);
+        for (String name : names) {
+            assertEquals("1..1\nok 1 - " + name + "\n", tapDir.child("results/" + name).readToString());
+        }
+        TapResult testResult = build.getAction(TapTestResultAction.class).getTapResult();
+        assertEquals(names.length, testResult.getTotal());
+    }
+
+    @Test
+    public void testAbsolutePatternsFailTheBuild() throws Exception {
+        FreeStyleProject project = jenkins.createProject(FreeStyleProject.class, "report-absolute");
+
+        TapPublisher publisher = new TapPublisher(
+                new File(jenkins.jenkins.getRootDir(), "*.tap").getAbsolutePath(), // test results
+                false, // failIfNoResults
+                false, // failedTestsMarkBuildAsFailure
+                false, // outputTapToConsole
+                true,  // enableSubtests
+                false, // discardOldReports
+                true,  // todoIsFailure
+                true,  // includeCommentDiagnostics
+                false, // validateNumberOfTests
+                true,  // planRequired
+                false, // verbose
+                false, // showOnlyFailures
+                false, // stripSingleParents
+                false, // flattenTapResult
+                false, // removeYamlIfCorrupted
+                false); // skipIfBuildNotOk
+
+        project.getPublishersList().add(publisher);
+        project.save();
+        FreeStyleBuild build = jenkins.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0).get());
+        jenkins.assertLogContains("Expecting Ant GLOB pattern relative to the workspace", build);
+    }
+
+}
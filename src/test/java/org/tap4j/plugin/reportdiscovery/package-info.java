@@ -0,0 +1,4 @@
+/**
+ * Tests for finding the TAP files in the workspace.
+ */
+package org.tap4j.plugin.reportdiscovery;
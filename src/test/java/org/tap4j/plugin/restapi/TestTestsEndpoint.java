@@ -0,0 +1,114 @@
+package org.tap4j.plugin.restapi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import hudson.model.Result;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+import org.htmlunit.Page;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+/**
+ * Tests for the JSON endpoint with the tests of a build, {@code tapResults/tests}.
+ */
+public class TestTestsEndpoint {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private WorkflowRun run;
+
+    @Before
+    public void setUp() throws Exception {
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+            "node {\n" +
+            "  writeFile file: 'unit/a.tap', text: '1..4\\n" +
+            "ok 1 - fast\\n  ---\\n  duration_ms: 5\\n  ...\\n" +
+            "not ok 2 - slow\\n  ---\\n  duration_ms: 500\\n  ...\\n" +
+            "ok 3 - later # SKIP not now\\n" +
+            "not ok 4 - unfinished # TODO soon\\n'\n" +
+            "  writeFile file: 'integration/b.tap', text: '1..2\\nok 1 - Slow database\\nnot ok 2 - network\\n'\n" +
+            "  publishTap(testResults: '**/*.tap', todoIsFailure: false)\n" +
+            "}",
+            true));
+        run = j.buildAndAssertStatus(Result.UNSTABLE, job);
+    }
+
+    @Test
+    public void testAllTestsArePagedWithTheCursor() throws Exception {
+        JSONObject page = get("limit=4");
+        assertEquals(4, page.getJSONArray("tests").size());
+        final String next = page.getString("next");
+
+        page = get("limit=4&cursor=" + next);
+        assertEquals(2, page.getJSONArray("tests").size());
+        assertTrue(page.get("next") instanceof JSONNull);
+    }
+
+    @Test
+    public void testFilters() throws Exception {
+        JSONArray tests = get("status=failed").getJSONArray("tests");
+        assertEquals(2, tests.size());
+        assertEquals("- slow", tests.getJSONObject(0).getString("description"));
+        assertEquals("- network", tests.getJSONObject(1).getString("description"));
+
+        tests = get("directive=todo").getJSONArray("tests");
+        assertEquals(1, tests.size());
+        assertEquals("todo", tests.getJSONObject(0).getString("status"));
+        assertEquals("soon", tests.getJSONObject(0).getString("reason"));
+
+        assertEquals(2, get("file=integration/**").getJSONArray("tests").size());
+        assertEquals(2, get("description=SLOW").getJSONArray("tests").size());
+
+        tests = get("minDuration=100").getJSONArray("tests");
+        assertEquals(1, tests.size());
+        assertEquals(2, tests.getJSONObject(0).getInt("number"));
+        assertEquals(500.0, tests.getJSONObject(0).getDouble("duration"), 0.01);
+    }
+
+    @Test
+    public void testInvalidParametersAreRejected() throws Exception {
+        try (JenkinsRule.WebClient wc = j.createWebClient()) {
+            wc.setThrowExceptionOnFailingStatusCode(false);
+            Page page = wc.goTo(run.getUrl() + "tapResults/tests?status=broken", null);
+            assertEquals(400, page.getWebResponse().getStatusCode());
+            page = wc.goTo(run.getUrl() + "tapResults/tests?cursor=x", null);
+            assertEquals(400, page.getWebResponse().getStatusCode());
+        }
+    }
+
+    @Test
+    public void testTestsWithoutNumberAreWritten() throws Exception {
+        WorkflowJob job = j.createProject(WorkflowJob.class);
+        job.setDefinition(new CpsFlowDefinition(
+            "node {\n" +
+            "  writeFile file: 'c.tap', text: '1..2\\nok - unnumbered\\nnot ok - also unnumbered\\n'\n" +
+            "  publishTap(testResults: 'c.tap')\n" +
+            "}",
+            true));
+        run = j.buildAndAssertStatus(Result.UNSTABLE, job);
+
+        JSONObject page = get("limit=10");
+        JSONArray tests = page.getJSONArray("tests");
+        assertEquals(2, tests.size());
+        assertEquals("- unnumbered", tests.getJSONObject(0).getString("description"));
+        assertEquals("failed", tests.getJSONObject(1).getString("status"));
+        assertTrue(page.get("next") instanceof JSONNull);
+    }
+
+    private JSONObject get(String query) throws Exception {
+        try (JenkinsRule.WebClient wc = j.createWebClient()) {
+            Page page = wc.goTo(run.getUrl() + "tapResults/tests?" + query, "application/json");
+            return JSONObject.fromObject(page.getWebResponse().getContentAsString());
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Tests for the JSON endpoint with the tests of a build.
+ */
+package org.tap4j.plugin.restapi;
@@ -0,0 +1,204 @@
+package org.tap4j.plugin.streaming;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Objects;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+import org.tap4j.consumer.TapConsumerFactory;
+import org.tap4j.model.TestResult;
+import org.tap4j.model.TestSet;
+import org.tap4j.plugin.StreamedTestSetCollector;
+import org.tap4j.plugin.TapEventParser;
+import org.tap4j.plugin.TapPublisher;
+import org.tap4j.plugin.TapResult;
+import org.tap4j.plugin.TapTestResultAction;
+import org.tap4j.plugin.model.StreamedTestSetMap;
+import org.tap4j.plugin.model.TapResultSummary;
+
+/**
+ * Tests for the streaming threshold configuration option.
+ */
+public class TestStreamingParsing {
+
+    /**
+     * Enough tests for a file larger than 1 MB.
+     */
+    private static final int NUMBER_OF_TESTS = 20000;
+
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Test
+    public void testStreamedFileIsCountedAsTheParsedFile() throws Exception {
+        final TapResult parsed = build(false, 0);
+        final TapResult streamed = build(false, 1);
+
+        assertFalse(parsed.getTestSets().get(0) instanceof StreamedTestSetMap);
+        assertTrue(streamed.getTestSets().get(0) instanceof StreamedTestSetMap);
+        assertSameCounts(parsed.getSummary(), streamed.getSummary());
+        assertEquals(1, streamed.getTestSets().get(0).getTestSet().getNumberOfBailOuts());
+    }
+
+    @Test
+    public void testFlattenedStreamedFileIsCountedAsTheParsedFile() throws Exception {
+        final TapResult parsed = build(true, 0);
+        final TapResult streamed = build(true, 1);
+
+        assertTrue(streamed.getTestSets().get(0) instanceof StreamedTestSetMap);
+        assertSameCounts(parsed.getSummary(), streamed.getSummary());
+        // numbered breadth-first, as the flattened tree
+        final List<TestResult> all = parsed.getTestSets().get(0).getTestSet().getTestResults();
+        for (TestResult testResult : streamed.getTestSets().get(0).getTestSet().getTestResults()) {
+            assertTrue(testResult.getDescription().startsWith("- parent"));
+            assertEquals(all.get(testResult.getTestNumber() - 1).getDescription(), testResult.getDescription());
+        }
+    }
+
+    @Test
+    public void testTestResultsAreSplitAsByTheTreeParser() throws Exception {
+        final String tap = "1..4\n" +
+                "not ok 1 - with # a comment\n" +
+                "not ok 2 - later # TODO not yet\n" +
+                "not ok 3 # skip no database\n" +
+                "not ok - without number\n";
+        final TestSet tree = TapConsumerFactory.makeTap13YamlConsumer().load(tap);
+        final StreamedTestSetCollector collector = new StreamedTestSetCollector(true, false, 10);
+        new TapEventParser(collector, true, true, false).parse(new StringReader(tap));
+        final List<TestResult> streamed = collector.toTestSetMap("test.tap").getTestSet().getTestResults();
+
+        // the skipped test is not kept
+        assertEquals(tree.getNumberOfTestResults() - 1, streamed.size());
+        for (int i = 0; i < streamed.size(); i++) {
+            final TestResult expected = tree.getTestResults().get(i < 2 ? i : i + 1);
+            assertEquals(expected.getTestNumber(), streamed.get(i).getTestNumber());
+            assertEquals(expected.getDescription(), streamed.get(i).getDescription());
+            assertEquals(expected.getDirective() == null, streamed.get(i).getDirective() == null);
+        }
+    }
+
+    @Test
+    public void testOnlyFailedTestsAreKept() throws Exception {
+        final String tap = "1..4\n" +
+                "ok 1 - first\n" +
+                "not ok 2 - second\n" +
+                "  ---\n" +
+                "  message: failed\n" +
+                "  ...\n" +
+                "not ok 3 - third\n" +
+                "not ok 4 - fourth\n";
+        final StreamedTestSetCollector collector = new StreamedTestSetCollector(true, false, 2);
+        new TapEventParser(collector, true, true, false).parse(new StringReader(tap));
+        final StreamedTestSetMap map = collector.toTestSetMap("test.tap");
+
+        assertEquals(4, map.getCounts().getTotal());
+        assertEquals(3, map.getCounts().getFailed());
+        assertEquals(2, map.getTestSet().getNumberOfTestResults());
+        assertTrue(map.isTruncated());
+        final TestResult second = map.getTestSet().getTestResults().get(0);
+        assertEquals("- second", second.getDescription());
+        assertEquals("failed", second.getDiagnostic().get("message"));
+    }
+
+    private static void assertSameCounts(TapResultSummary expected, TapResultSummary actual) {
+        assertEquals(expected.getTotal(), actual.getTotal());
+        assertEquals(expected.getPassed(), actual.getPassed());
+        assertEquals(expected.getFailed(), actual.getFailed());
+        assertEquals(expected.getSkipped(), actual.getSkipped());
+        assertEquals(expected.getToDo(), actual.getToDo());
+        assertEquals(expected.getBailOuts(), actual.getBailOuts());
+        assertEquals(expected.getDuration(), actual.getDuration(), 0.01f);
+    }
+
+    private TapResult build(boolean flatten, int streamingThreshold) throws Exception {
+        FreeStyleProject project = jenkins.createFreeStyleProject();
+
+        project.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher,
+                    BuildListener listener) throws InterruptedException, IOException {
+                FilePath workspace = Objects.requireNonNull(build.getWorkspace());
+                workspace.child("large.tap").write(largeTap(), "UTF-8");
+                return true;
+            }
+        });
+
+        TapPublisher publisher = new TapPublisher(
+                "large.tap", // test results
+                true,  // failIfNoResults
+                false, // failedTestsMarkBuildAsFailure
+                false, // outputTapToConsole
+                true,  // enableSubtests
+                false, // discardOldReports
+                true,  // todoIsFailure
+                true,  // includeCommentDiagnostics
+                false, // validateNumberOfTests
+                true,  // planRequired
+                false, // verbose
+                false, // showOnlyFailures
+                false, // stripSingleParents
+                flatten, // flattenTapResult
+                false, // removeYamlIfCorrupted
+                false); // skipIfBuildNotOk
+        publisher.setStreamingThreshold(streamingThreshold);
+
+        project.getPublishersList().add(publisher);
+        project.save();
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+
+        TapTestResultAction action = build.getAction(TapTestResultAction.class);
+        return action.getTapResult();
+    }
+
+    /**
+     * @return a TAP stream with subtests, failures, skipped and TODO tests, durations and a bail out
+     */
+    private static String largeTap() {
+        final StringBuilder tap = new StringBuilder();
+        tap.append("TAP version 13\n");
+        tap.append("1..").append(NUMBER_OF_TESTS).append('\n');
+        for (int i = 1; i <= NUMBER_OF_TESTS; i++) {
+            if (i % 1000 == 0) {
+                tap.append("    1..3\n");
+                tap.append("    ok 1 - child one\n");
+                tap.append("    not ok 2 - child two\n");
+                tap.append("ok ").append(i).append(" - parent ").append(i).append('\n');
+                continue;
+            }
+            tap.append(i % 7 == 0 ? "not ok " : "ok ").append(i)
+                    .append(" - parent test number ").append(i).append(" with a long description");
+            if (i % 11 == 0) {
+                tap.append(" # SKIP not now");
+            } else if (i % 13 == 0) {
+                tap.append(" # TODO later");
+            }
+            tap.append('\n');
+            if (i % 17 == 0) {
+                tap.append("  ---\n");
+                tap.append("  duration_ms: 1.5\n");
+                tap.append("  ...\n");
+            }
+            if (i == NUMBER_OF_TESTS / 2) {
+                tap.append("# a comment\n");
+                tap.append("Bail out! half way\n");
+            }
+        }
+        return tap.toString();
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Tests for parsing large TAP files in streaming mode.
+ */
+package org.tap4j.plugin.streaming;
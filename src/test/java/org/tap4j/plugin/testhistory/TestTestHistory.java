@@ -0,0 +1,115 @@
+package org.tap4j.plugin.testhistory;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.tasks.test.TestResult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+import org.tap4j.plugin.TapPublisher;
+import org.tap4j.plugin.TapTestHistory;
+import org.tap4j.plugin.TapTestResultAction;
+import org.tap4j.plugin.model.TapTestResultResult;
+
+/**
+ * Tests for the {@link TapTestHistory}.
+ */
+public class TestTestHistory {
+
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Test
+    public void testAgeAndFailedSinceOfTheFailedTests() throws Exception {
+        FreeStyleProject project = createProject(
+                "1..2\nnot ok 1 - first\nok 2 - second\n",
+                "1..2\nnot ok 1 - first\nnot ok 2 - second\n",
+                // the tests are matched by description, not by number
+                "1..3\nok 1 - zeroth\nnot ok 2 - second\nok 3 - first\n");
+        FreeStyleBuild first = project.scheduleBuild2(0).get();
+        FreeStyleBuild second = project.scheduleBuild2(0).get();
+        FreeStyleBuild third = project.scheduleBuild2(0).get();
+        assertTrue(new File(project.getRootDir(), TapTestHistory.FILE_NAME).isFile());
+
+        List<TestResult> failed = getFailedTests(first);
+        assertEquals(1, failed.size());
+        assertFailure(failed.get(0), first, 1);
+
+        failed = getFailedTests(second);
+        assertEquals(2, failed.size());
+        assertFailure(failed.get(0), first, 2);
+        assertFailure(failed.get(1), second, 1);
+
+        failed = getFailedTests(third);
+        assertEquals(1, failed.size());
+        assertEquals("2 - second", failed.get(0).getName());
+        assertFailure(failed.get(0), second, 2);
+
+        // the age is kept when the build where the test started failing is deleted
+        second.delete();
+        failed = getFailedTests(third);
+        assertEquals(2, ((TapTestResultResult) failed.get(0)).getAge());
+        assertEquals(second.getNumber(), ((TapTestResultResult) failed.get(0)).getFailedSince());
+    }
+
+    private static List<TestResult> getFailedTests(FreeStyleBuild build) {
+        return build.getAction(TapTestResultAction.class).getResult().getFailedTests2();
+    }
+
+    private static void assertFailure(TestResult test, FreeStyleBuild failedSince, int age) {
+        TapTestResultResult result = (TapTestResultResult) test;
+        assertEquals(failedSince.getNumber(), result.getFailedSince());
+        assertEquals(age, result.getAge());
+    }
+
+    private FreeStyleProject createProject(final String... results) throws IOException {
+        FreeStyleProject project = jenkins.createProject(FreeStyleProject.class, "test-history");
+
+        project.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher,
+                    BuildListener listener) throws InterruptedException, IOException {
+                FilePath workspace = Objects.requireNonNull(build.getWorkspace());
+                workspace.child("result.tap").write(results[build.getNumber() - 1], "UTF-8");
+                return true;
+            }
+        });
+
+        TapPublisher publisher = new TapPublisher(
+                "*.tap", // test results
+                true,  // failIfNoResults
+                false, // failedTestsMarkBuildAsFailure
+                false, // outputTapToConsole
+                true,  // enableSubtests
+                false, // discardOldReports
+                true,  // todoIsFailure
+                true,  // includeCommentDiagnostics
+                false, // validateNumberOfTests
+                true,  // planRequired
+                false, // verbose
+                false, // showOnlyFailures
+                false, // stripSingleParents
+                false, // flattenTapResult
+                false, // removeYamlIfCorrupted
+                false); // skipIfBuildNotOk
+
+        project.getPublishersList().add(publisher);
+        project.save();
+        return project;
+    }
+
+}
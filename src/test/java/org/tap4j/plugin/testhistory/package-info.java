@@ -0,0 +1,4 @@
+/**
+ * Tests for the failure history of the tests of a job.
+ */
+package org.tap4j.plugin.testhistory;
@@ -0,0 +1,87 @@
+package org.tap4j.plugin.testlookup;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import org.htmlunit.Page;
+import org.htmlunit.html.HtmlPage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+import org.tap4j.plugin.TapPublisher;
+
+/**
+ * Tests for the test and subtest URLs of the TAP test report.
+ */
+public class TestLookup {
+
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Test
+    public void testTestsAndSubtestsAreResolved() throws Exception {
+        FreeStyleProject project = jenkins.createProject(FreeStyleProject.class, "test-lookup");
+
+        final String tap = "1..2\n" +
+                "ok 1 - first\n" +
+                "  1..2\n" +
+                "  ok 1 - nested one\n" +
+                "  not ok 2 - nested two\n" +
+                "not ok 2 - second\n";
+        project.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher,
+                    BuildListener listener) throws InterruptedException, IOException {
+                FilePath workspace = Objects.requireNonNull(build.getWorkspace());
+                workspace.child("result.tap").write(tap, "UTF-8");
+                return true;
+            }
+        });
+
+        TapPublisher publisher = new TapPublisher(
+                "*.tap", // test results
+                true,  // failIfNoResults
+                false, // failedTestsMarkBuildAsFailure
+                false, // outputTapToConsole
+                true,  // enableSubtests
+                false, // discardOldReports
+                true,  // todoIsFailure
+                true,  // includeCommentDiagnostics
+                false, // validateNumberOfTests
+                true,  // planRequired
+                false, // verbose
+                false, // showOnlyFailures
+                false, // stripSingleParents
+                false, // flattenTapResult
+                false, // removeYamlIfCorrupted
+                false); // skipIfBuildNotOk
+
+        project.getPublishersList().add(publisher);
+        project.save();
+        FreeStyleBuild build = project.scheduleBuild2(0).get();
+
+        try (JenkinsRule.WebClient wc = jenkins.createWebClient()) {
+            HtmlPage test = wc.getPage(build, "tapTestReport/result.tap-1/");
+            assertTrue(test.asNormalizedText().contains("first"));
+
+            HtmlPage subtest = wc.getPage(build, "tapTestReport/result.tap-2/2/");
+            assertTrue(subtest.asNormalizedText().contains("nested two"));
+
+            wc.setThrowExceptionOnFailingStatusCode(false);
+            Page missing = wc.getPage(build, "tapTestReport/result.tap-3/");
+            assertEquals(404, missing.getWebResponse().getStatusCode());
+        }
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Tests for resolving the URLs of individual tests and subtests.
+ */
+package org.tap4j.plugin.testlookup;
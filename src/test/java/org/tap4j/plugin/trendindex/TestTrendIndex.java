@@ -0,0 +1,103 @@
+package org.tap4j.plugin.trendindex;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+import org.tap4j.plugin.TapPublisher;
+import org.tap4j.plugin.TapTrendIndex;
+
+/**
+ * Tests for the {@link TapTrendIndex}.
+ */
+public class TestTrendIndex {
+
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Test
+    public void testIndexIsUpdatedWhenResultsArePublished() throws Exception {
+        FreeStyleProject project = createProject();
+        FreeStyleBuild first = project.scheduleBuild2(0).get();
+        FreeStyleBuild second = project.scheduleBuild2(0).get();
+
+        assertTrue(new File(project.getRootDir(), TapTrendIndex.FILE_NAME).isFile());
+        List<TapTrendIndex.Entry> entries = TapTrendIndex.getEntries(project);
+        assertEquals(2, entries.size());
+        assertEquals(second.getNumber(), entries.get(0).getNumber());
+        assertEquals(first.getNumber(), entries.get(1).getNumber());
+        assertEquals(1, entries.get(0).getPassed());
+        assertEquals(1, entries.get(0).getFailed());
+
+        first.delete();
+        entries = TapTrendIndex.getEntries(project);
+        assertEquals(1, entries.size());
+        assertEquals(second.getNumber(), entries.get(0).getNumber());
+    }
+
+    @Test
+    public void testIndexIsCreatedFromExistingBuilds() throws Exception {
+        FreeStyleProject project = createProject();
+        project.scheduleBuild2(0).get();
+        project.scheduleBuild2(0).get();
+
+        assertTrue(new File(project.getRootDir(), TapTrendIndex.FILE_NAME).delete());
+
+        List<TapTrendIndex.Entry> entries = TapTrendIndex.getEntries(project);
+        assertEquals(2, entries.size());
+        assertEquals(2, entries.get(0).getNumber());
+        assertEquals(1, entries.get(0).getFailed());
+    }
+
+    private FreeStyleProject createProject() throws IOException {
+        FreeStyleProject project = jenkins.createProject(FreeStyleProject.class, "trend-index");
+
+        project.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher,
+                    BuildListener listener) throws InterruptedException, IOException {
+                FilePath workspace = Objects.requireNonNull(build.getWorkspace());
+                workspace.child("result.tap").write("1..2\nok 1 - first\nnot ok 2 - second\n", "UTF-8");
+                return true;
+            }
+        });
+
+        TapPublisher publisher = new TapPublisher(
+                "*.tap", // test results
+                true,  // failIfNoResults
+                false, // failedTestsMarkBuildAsFailure
+                false, // outputTapToConsole
+                true,  // enableSubtests
+                false, // discardOldReports
+                true,  // todoIsFailure
+                true,  // includeCommentDiagnostics
+                false, // validateNumberOfTests
+                true,  // planRequired
+                false, // verbose
+                false, // showOnlyFailures
+                false, // stripSingleParents
+                false, // flattenTapResult
+                false, // removeYamlIfCorrupted
+                false); // skipIfBuildNotOk
+
+        project.getPublishersList().add(publisher);
+        project.save();
+        return project;
+    }
+
+}
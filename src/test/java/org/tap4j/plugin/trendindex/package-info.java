@@ -0,0 +1,4 @@
+/**
+ * Tests for the per-job index used by the TAP trend graph.
+ */
+package org.tap4j.plugin.trendindex;
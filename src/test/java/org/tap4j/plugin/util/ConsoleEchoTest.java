@@ -0,0 +1,74 @@
+package org.tap4j.plugin.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for the limits of the TAP streams copied to the console.
+ */
+public class ConsoleEchoTest {
+
+    private static final String TAP = "1..4\n" +
+            "ok 1 - first\n" +
+            "not ok 2 - second\n" +
+            "  ---\n" +
+            "  message: failed\n" +
+            "  ...\n" +
+            "ok 3 - third\n" +
+            "not ok 4 - fourth\n" +
+            "Bail out! stop\n";
+
+    @Test
+    public void testEverythingIsPrintedByDefault() throws IOException {
+        assertEquals(Arrays.asList(TAP.split("\n")), echo(ConsoleEcho.ALL));
+    }
+
+    @Test
+    public void testHeadAndTail() throws IOException {
+        assertEquals(Arrays.asList(
+                "1..4",
+                "ok 1 - first",
+                "... 6 line(s) omitted ...",
+                "Bail out! stop"), echo(new ConsoleEcho(2, 1, 0, false)));
+    }
+
+    @Test
+    public void testOnlyHead() throws IOException {
+        assertEquals(Arrays.asList(
+                "1..4",
+                "... 8 line(s) omitted ..."), echo(new ConsoleEcho(1, 0, 0, false)));
+    }
+
+    @Test
+    public void testOnlyFailures() throws IOException {
+        assertEquals(Arrays.asList(
+                "not ok 2 - second",
+                "  ---",
+                "  message: failed",
+                "  ...",
+                "not ok 4 - fourth",
+                "Bail out! stop"), echo(new ConsoleEcho(0, 0, 0, true)));
+    }
+
+    @Test
+    public void testMaximumSize() throws IOException {
+        // "1..4" and "ok 1 - first" take 18 characters with their line breaks
+        assertEquals(Arrays.asList(
+                "1..4",
+                "ok 1 - first",
+                "... output truncated after 18 characters ..."), echo(new ConsoleEcho(0, 0, 20, false)));
+    }
+
+    private static List<String> echo(ConsoleEcho consoleEcho) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        consoleEcho.echo(new StringReader(TAP), lines::add);
+        return lines;
+    }
+}
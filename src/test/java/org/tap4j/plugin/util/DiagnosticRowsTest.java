@@ -0,0 +1,89 @@
+package org.tap4j.plugin.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for the rows of the YAML diagnostic tables.
+ */
+public class DiagnosticRowsTest {
+
+    @Test
+    public void testNestedMapsAreIndented() {
+        final Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("got", 1);
+        nested.put("expected", 2);
+        final Map<String, Object> diagnostic = new LinkedHashMap<>();
+        diagnostic.put("message", "failed");
+        diagnostic.put("data", nested);
+        diagnostic.put("severity", "fail");
+
+        final List<DiagnosticRows.Row> rows = rows(diagnostic);
+
+        assertEquals(5, rows.size());
+        assertEquals("message", rows.get(0).getKey());
+        assertEquals(1, rows.get(0).getDepth());
+        assertEquals("failed", rows.get(0).getValue());
+        assertTrue(rows.get(1).isMap());
+        assertNull(rows.get(1).getValue());
+        assertEquals("got", rows.get(2).getKey());
+        assertEquals(2, rows.get(2).getDepth());
+        assertEquals("expected", rows.get(3).getKey());
+        assertEquals("severity", rows.get(4).getKey());
+        assertEquals(1, rows.get(4).getDepth());
+    }
+
+    @Test
+    public void testAttachments() {
+        final Map<String, Object> attachment = new LinkedHashMap<>();
+        attachment.put("File-Type", "text/plain");
+        attachment.put("File-Name", "hello.txt");
+        attachment.put("File-Content", "aGVsbG8=");
+        final Map<String, Object> diagnostic = new LinkedHashMap<>();
+        diagnostic.put("extensions", attachment);
+
+        final List<DiagnosticRows.Row> rows = rows(diagnostic);
+
+        assertEquals(4, rows.size());
+        final DiagnosticRows.Row content = rows.get(3);
+        assertTrue(content.isAttachment());
+        assertEquals("hello.txt", content.getValue());
+        assertEquals("hello.txt", content.getAttachmentKey());
+    }
+
+    @Test
+    public void testLargeAndDeepDiagnosticsAreCollapsed() {
+        final Map<String, Object> small = new LinkedHashMap<>();
+        small.put("message", "failed");
+        assertFalse(DiagnosticRows.isCollapsed(small));
+
+        final Map<String, Object> large = new LinkedHashMap<>();
+        for (int i = 0; i <= DiagnosticRows.COLLAPSE_ROWS; i++) {
+            large.put("key" + i, i);
+        }
+        assertTrue(DiagnosticRows.isCollapsed(large));
+
+        Map<String, Object> deep = new LinkedHashMap<>();
+        for (int i = 0; i <= DiagnosticRows.COLLAPSE_DEPTH; i++) {
+            final Map<String, Object> parent = new LinkedHashMap<>();
+            parent.put("level" + i, deep);
+            deep = parent;
+        }
+        assertTrue(DiagnosticRows.isCollapsed(deep));
+    }
+
+    private static List<DiagnosticRows.Row> rows(Map<String, Object> diagnostic) {
+        final List<DiagnosticRows.Row> rows = new ArrayList<>();
+        new DiagnosticRows(diagnostic).forEach(rows::add);
+        return rows;
+    }
+}
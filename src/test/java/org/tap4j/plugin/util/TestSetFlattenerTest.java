@@ -0,0 +1,80 @@
+package org.tap4j.plugin.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.tap4j.model.TestResult;
+import org.tap4j.model.TestSet;
+import org.tap4j.parser.Tap13Parser;
+import org.tap4j.util.StatusValues;
+
+public class TestSetFlattenerTest {
+
+    private static TestSet parse(String tap) {
+        return new Tap13Parser("UTF-8", true, true, false).parseTapStream(tap);
+    }
+
+    @Test
+    public void numbersTestsInBreadthFirstOrder() {
+        final String tap = "1..2\n" +
+                "  1..2\n" +
+                "    1..1\n" +
+                "    ok 1 .1\n" +
+                "  ok 1 .1\n" +
+                "  ok 2 .2\n" +
+                "ok 1 1\n" +
+                "ok 2 2\n";
+        final List<TestResult> results = TestSetFlattener.flatten(parse(tap)).getTestResults();
+
+        final String[] expectedDescriptions = {"2", "1.2", "1.1.1"};
+        assertEquals(expectedDescriptions.length, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i + 1, results.get(i).getTestNumber().intValue());
+            assertEquals(expectedDescriptions[i], results.get(i).getDescription());
+        }
+    }
+
+    @Test
+    public void addsFailedTestForMissingSubtests() {
+        final String tap = "1..1\n" +
+                "  1..3\n" +
+                "  ok 1 .1\n" +
+                "ok 1 1\n";
+        final List<TestResult> results = TestSetFlattener.flatten(parse(tap)).getTestResults();
+
+        assertEquals(2, results.size());
+        assertEquals("1.1", results.get(0).getDescription());
+        assertEquals(StatusValues.NOT_OK, results.get(1).getStatus());
+        assertEquals("1 failed: 2 subtest(s) missing", results.get(1).getDescription());
+        assertEquals(2, results.get(1).getTestNumber().intValue());
+    }
+
+    @Test
+    public void flattensDeeplyNestedSubtests() {
+        final int depth = 50;
+        final StringBuilder tap = new StringBuilder();
+        for (int level = 0; level < depth; level++) {
+            indent(tap, level).append("1..1\n");
+        }
+        for (int level = depth - 1; level >= 0; level--) {
+            indent(tap, level).append("ok 1 .").append(level).append('\n');
+        }
+        final List<TestResult> results = TestSetFlattener.flatten(parse(tap.toString())).getTestResults();
+
+        assertEquals(1, results.size());
+        final StringBuilder expected = new StringBuilder();
+        for (int level = 0; level < depth; level++) {
+            expected.append('.').append(level);
+        }
+        assertEquals(expected.toString(), results.get(0).getDescription());
+    }
+
+    private static StringBuilder indent(StringBuilder sb, int level) {
+        for (int i = 0; i < level; i++) {
+            sb.append("  ");
+        }
+        return sb;
+    }
+}